@@ -0,0 +1,24 @@
+import java.io.IOException;
+import java.nio.file.*;
+
+/**
+ * AtomicFiles moves finished temp files over the files they replace.
+ *
+ * Every file the app saves is written to a temp file next to the real one first,
+ * so the move is the only step where the real file changes.
+ */
+public class AtomicFiles {
+    /**
+     * Moves a temp file over the file it replaces, in one step when the file system can do that.
+     * @param temp the finished temp file
+     * @param target the file to replace
+     * @throws IOException if the file could not be moved
+     */
+    public static void replace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING); //some file systems cant do it in one step, this is the next best thing
+        }
+    }
+}
@@ -0,0 +1,130 @@
+import org.knowm.xchart.XChartPanel;
+import org.knowm.xchart.XYChart;
+import org.knowm.xchart.XYSeries;
+
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.Arrays;
+
+/**
+ * DownsampledChartPanel is a chart panel that only draws as many data points as it has pixels for.
+ *
+ * The chart comes in with the data series already reduced by Downsampler. XChart zooms by filtering
+ * the points a series already has, which would leave only a handful of the reduced points on screen,
+ * so whenever the zoom changes the window the points inside it are picked again from all of the data.
+ * Zooming in then shows the full detail, and every view draws about the same number of points.
+ */
+public class DownsampledChartPanel extends XChartPanel<XYChart> {
+    private static final long serialVersionUID = 1L;
+
+    private final String seriesName;
+    private final double[] xs;
+    private final double[] ys;
+    private final boolean connected;
+    private int[] overview; //the points picked for the whole plot, made the first time the chart is zoomed
+    private double shownMin = Double.NaN; //x range of the zoomed points being drawn, NaN when the whole plot is shown
+    private double shownMax = Double.NaN;
+    private int dragStart;
+    private double[] selection; //x range of the last zoom drag
+
+    /**
+     * @param chart the chart to show
+     * @param seriesName the name of the reduced data series in the chart
+     * @param xs all the x values of the series
+     * @param ys all the y values of the series
+     * @param connected whether the points are joined by lines
+     */
+    public DownsampledChartPanel(XYChart chart, String seriesName, double[] xs, double[] ys, boolean connected) {
+        super(chart);
+        this.seriesName = seriesName;
+        this.xs = xs;
+        this.ys = ys;
+        this.connected = connected;
+        //the filtered points only say roughly where the zoom window is (to within the gap between two reduced points),
+        //so the drag that made it is kept too. this is added after the zoom's own listener, so the chart still has the old axes here
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragStart = e.getX();
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                selection = new double[]{getChart().getChartXFromCoordinate(Math.min(dragStart, e.getX())),
+                        getChart().getChartXFromCoordinate(Math.max(dragStart, e.getX()))};
+            }
+        });
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        updateDetail();
+        super.paintComponent(g);
+    }
+
+    //the zoom filters the series and then repaints, so by the time it paints the series says which window is shown
+    private void updateDetail() {
+        XYSeries series = getChart().getSeriesMap().get(seriesName);
+        if (series == null || xs.length <= Downsampler.limit(getWidth())) {
+            return; //every point is drawn anyway, the zoom can filter them itself
+        }
+        if (series.isAllXData()) {
+            if (!Double.isNaN(shownMin)) {
+                //the zoom was reset, back to the points for the whole plot
+                series.replaceData(Downsampler.pick(xs, overview), Downsampler.pick(ys, overview), null);
+                shownMin = Double.NaN;
+                shownMax = Double.NaN;
+            }
+            return;
+        }
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double x : series.getXData()) {
+            min = Math.min(min, x);
+            max = Math.max(max, x);
+        }
+        if (min == shownMin && max == shownMax) {
+            return; //still the window picked last time
+        }
+        if (selection != null && selection[0] <= min && max <= selection[1]) {
+            min = selection[0];
+            max = selection[1];
+        }
+        selection = null;
+        if (overview == null) {
+            overview = Downsampler.select(xs, ys, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, connected, getWidth(), getHeight());
+        }
+        //the series keeps the overview outside the window, so resetting the zoom shows the whole plot straight away
+        //and then filters to the window like the zoom did
+        int[] points = merge(overview, Downsampler.select(xs, ys, min, max, connected, getWidth(), getHeight()), min, max);
+        series.replaceData(Downsampler.pick(xs, points), Downsampler.pick(ys, points), null);
+        series.filterXByValue(min, max);
+        shownMin = Double.POSITIVE_INFINITY;
+        shownMax = Double.NEGATIVE_INFINITY;
+        for (double x : series.getXData()) {
+            shownMin = Math.min(shownMin, x);
+            shownMax = Math.max(shownMax, x);
+        }
+    }
+
+    //the overview points outside the window and the detail points inside it, in their original order
+    private int[] merge(int[] overview, int[] detail, double min, double max) {
+        int[] merged = new int[overview.length + detail.length];
+        int count = 0;
+        int d = 0;
+        for (int i : overview) {
+            if (xs[i] >= min && xs[i] <= max) {
+                continue;
+            }
+            while (d < detail.length && detail[d] < i) {
+                merged[count++] = detail[d++];
+            }
+            merged[count++] = i;
+        }
+        while (d < detail.length) {
+            merged[count++] = detail[d++];
+        }
+        return Arrays.copyOf(merged, count);
+    }
+}
@@ -0,0 +1,132 @@
+import java.util.Arrays;
+
+/**
+ * Downsampler picks which data points are worth drawing, so a chart of a million points
+ * draws about as fast as one of a thousand.
+ *
+ * Points joined by lines are reduced with Largest-Triangle-Three-Buckets (LTTB): the points are split
+ * into buckets and from each bucket the point making the biggest triangle with its neighbours is kept,
+ * which keeps the peaks and dips that give the line its shape.
+ * Loose points keep one point per few pixels of the plot, since any more would just be drawn on top of each other.
+ *
+ * Both return indices into the original arrays, in their original order,
+ * so connected points are still joined in the order they were entered.
+ */
+public class Downsampler {
+    private static final int POINTS_PER_PIXEL = 2; //points kept per pixel of plot width
+    private static final int CELL_PIXELS = 4; //markers are 8 pixels wide, so one point every 4 pixels still covers everything the full plot would
+
+    /**
+     * Picks the points to draw from those with x between xMin and xMax.
+     * @param xs the x values
+     * @param ys the y values
+     * @param xMin the left edge of the shown window
+     * @param xMax the right edge of the shown window
+     * @param connected whether the points are joined by lines
+     * @param width the plot width in pixels
+     * @param height the plot height in pixels
+     * @return the indices of the points to draw, in increasing order
+     */
+    public static int[] select(double[] xs, double[] ys, double xMin, double xMax, boolean connected, int width, int height) {
+        int[] inside = inside(xs, xMin, xMax);
+        if (inside.length <= limit(width)) {
+            return inside;
+        }
+        return connected ? largestTriangles(xs, ys, inside, limit(width)) : onePerCell(xs, ys, inside, width, height);
+    }
+
+    //the most points worth drawing across a plot this wide
+    public static int limit(int width) {
+        return POINTS_PER_PIXEL * Math.max(width, 1);
+    }
+
+    //copies out the values at the given indices, to hand to the chart
+    public static double[] pick(double[] values, int[] indices) {
+        double[] picked = new double[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            picked[i] = values[indices[i]];
+        }
+        return picked;
+    }
+
+    private static int[] inside(double[] xs, double xMin, double xMax) {
+        int[] inside = new int[xs.length];
+        int count = 0;
+        for (int i = 0; i < xs.length; i++) {
+            if (xs[i] >= xMin && xs[i] <= xMax) {
+                inside[count++] = i;
+            }
+        }
+        return count == xs.length ? inside : Arrays.copyOf(inside, count);
+    }
+
+    //keeps the first and last point, and from each of the buckets in between the point that makes the biggest triangle
+    //with the point kept from the bucket before and the average of the bucket after
+    private static int[] largestTriangles(double[] xs, double[] ys, int[] points, int target) {
+        int[] kept = new int[target];
+        int count = 0;
+        double bucket = (double) (points.length - 2) / (target - 2);
+        int last = 0; //position in points of the last point kept
+        kept[count++] = points[0];
+        for (int b = 0; b < target - 2; b++) {
+            int from = (int) (b * bucket) + 1;
+            int to = (int) ((b + 1) * bucket) + 1;
+            int nextTo = Math.min((int) ((b + 2) * bucket) + 1, points.length);
+            double averageX = 0;
+            double averageY = 0;
+            for (int j = to; j < nextTo; j++) {
+                averageX += xs[points[j]];
+                averageY += ys[points[j]];
+            }
+            averageX /= nextTo - to;
+            averageY /= nextTo - to;
+
+            double lastX = xs[points[last]];
+            double lastY = ys[points[last]];
+            double biggest = -1;
+            int chosen = from;
+            for (int j = from; j < to; j++) {
+                //twice the triangle's area, which is enough to compare them
+                double area = Math.abs((lastX - averageX) * (ys[points[j]] - lastY) - (lastX - xs[points[j]]) * (averageY - lastY));
+                if (area > biggest) {
+                    biggest = area;
+                    chosen = j;
+                }
+            }
+            kept[count++] = points[chosen];
+            last = chosen;
+        }
+        kept[count++] = points[points.length - 1];
+        return kept;
+    }
+
+    //splits the plot into cells a few pixels wide and keeps the first point that lands in each one
+    private static int[] onePerCell(double[] xs, double[] ys, int[] points, int width, int height) {
+        double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i : points) {
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        int columns = Math.max(width, 1) / CELL_PIXELS + 1;
+        int rows = Math.max(height, 1) / CELL_PIXELS + 1;
+        double columnScale = maxX > minX ? (columns - 1) / (maxX - minX) : 0;
+        double rowScale = maxY > minY ? (rows - 1) / (maxY - minY) : 0;
+
+        boolean[] taken = new boolean[columns * rows];
+        int[] kept = new int[Math.min(points.length, taken.length)];
+        int count = 0;
+        for (int i : points) {
+            int column = Math.min(Math.max((int) ((xs[i] - minX) * columnScale), 0), columns - 1);
+            int row = Math.min(Math.max((int) ((ys[i] - minY) * rowScale), 0), rows - 1);
+            int cell = row * columns + column;
+            if (!taken[cell]) {
+                taken[cell] = true;
+                kept[count++] = i;
+            }
+        }
+        return Arrays.copyOf(kept, count);
+    }
+}
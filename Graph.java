@@ -1,8 +1,8 @@
 import java.awt.geom.Point2D;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.time.Instant;
-import java.util.Random;
-import java.util.Set;
 
 import RegressionModels.*;
 
@@ -19,6 +19,13 @@ public class Graph {
     private Instant timeStamp; //stores the instant that the graph was created to help with sorting
     private Boolean connect_points = false; //used to determine whether to connect the points when rendering the graph
     private String imagePath = ""; //stores the path of its exported image for use in the graph inventory manager display
+    private double[] coefficients; //fitted coefficients of the regression, saved so reopening the graph doesnt have to fit again
+    private String equation; //the regression's equation (Latex) from that fit
+    private String pointsDigest; //fingerprint of the points the saved fit was made from, if the points change the saved fit is ignored
+    private String pointsFile = ""; //binary file holding the points of big graphs (see PointColumnFile), empty when the points are in the json
+    private transient boolean pointsDeferred = false; //true while the points are still on disk (GraphManager.readGraphs skips them to save memory)
+    private transient boolean indexEntry = false; //true for graphs read from the index, which only have the fields the gallery shows
+    private transient double[] xColumn, yColumn; //points loaded from a binary point file are kept as two plain arrays instead of a list of objects
 
     public Graph() {} //no arguments constructor for serialization
     //i.e. to store it in json, this is necessary so that the graph class can be built as the json storing functions cant send it arguments
@@ -26,19 +33,161 @@ public class Graph {
 
    //getters
     public Boolean isConnect_points() {return connect_points;}
-    public RegressionModel getRegression() {return regression;}
-    public ArrayList<Point2D.Double> getPoints() {return points;}
+    public String getModelName() {return modelName;}
+    public boolean hasDeferredPoints() {return pointsDeferred;}
+    public boolean isIndexEntry() {return indexEntry;}
+
+    /**
+     * Returns the regression model, loading it from the stored model name the first time it is needed.
+     * @return the regression model for this graph
+     */
+    public RegressionModel getRegression() {
+        if (regression == null) {
+            LoadRegression();
+        }
+        return regression;
+    }
+
+    /**
+     * Returns the graph's points as a list. Graphs read from the file leave their points on disk,
+     * so the first call loads them. Graphs whose points were loaded as columns get turned into a list here,
+     * so code that only needs the numbers should use getXData and getYData instead.
+     * @return the points of the graph
+     */
+    public ArrayList<Point2D.Double> getPoints() {
+        loadDeferredPoints();
+        if (points == null && xColumn != null) {
+            points = new ArrayList<>(xColumn.length);
+            for (int i = 0; i < xColumn.length; i++) {
+                points.add(new Point2D.Double(xColumn[i], yColumn[i]));
+            }
+            //the list can be edited, so from now on it is the only copy of the points
+            xColumn = null;
+            yColumn = null;
+        }
+        return points;
+    }
+
     public String getTitle() {return title;}
-    public String getId() {return id;}
+    public String getId() {
+        if (id == null) {
+            GenerateID(); //ids are only handed out once something needs one, so unsaved "Untitled" graphs dont use any up
+        }
+        return id;
+    }
     public Instant getTimeStamp() {return timeStamp;}
     public String getImagePath() {return imagePath;}
+    public String getPointsFile() {return pointsFile;}
 
     //setters
     public void setImagePath(String imagePath) {this.imagePath = imagePath;}
+    public void setPointsFile(String pointsFile) {this.pointsFile = pointsFile;}
     public void setConnect_points(Boolean connect_points) {this.connect_points = connect_points;}
-    public void setPoints(ArrayList<Point2D.Double> points) {this.points = points;}
+    public void setPoints(ArrayList<Point2D.Double> points) {
+        this.points = points;
+        this.xColumn = null;
+        this.yColumn = null;
+        this.pointsDeferred = false;
+    }
+
+    /**
+     * Drops the points from memory. They will be loaded from the file again the next time getPoints is called.
+     */
+    void deferPoints() {
+        this.points = null;
+        this.xColumn = null;
+        this.yColumn = null;
+        this.pointsDeferred = true;
+    }
+
+    /**
+     * Marks this graph as an index entry, which only has the fields the gallery shows.
+     * Use GraphManager.loadGraph (or GraphRepository.checkout) to get the whole graph.
+     */
+    void markIndexEntry() {
+        deferPoints();
+        this.indexEntry = true;
+    }
     public void setTitle(String title) {this.title = title;}
 
+    /**
+     * Returns the x values of the points without making a point object for each one.
+     * @return array of x values
+     */
+    public double[] getXData() {
+        loadDeferredPoints();
+        if (xColumn != null) {
+            return xColumn;
+        }
+        double[] xs = new double[points == null ? 0 : points.size()];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = points.get(i).getX();
+        }
+        return xs;
+    }
+
+    /**
+     * Returns the y values of the points without making a point object for each one.
+     * @return array of y values
+     */
+    public double[] getYData() {
+        loadDeferredPoints();
+        if (yColumn != null) {
+            return yColumn;
+        }
+        double[] ys = new double[points == null ? 0 : points.size()];
+        for (int i = 0; i < ys.length; i++) {
+            ys[i] = points.get(i).getY();
+        }
+        return ys;
+    }
+
+    /**
+     * @return the number of points in the graph
+     */
+    public int getPointCount() {
+        loadDeferredPoints();
+        if (xColumn != null) {
+            return xColumn.length;
+        }
+        return points == null ? 0 : points.size();
+    }
+
+    /**
+     * Replaces the points with x and y columns, as read from a binary point file.
+     * @param xs the x values
+     * @param ys the y values
+     */
+    public void setColumns(double[] xs, double[] ys) {
+        this.xColumn = xs;
+        this.yColumn = ys;
+        this.points = null;
+        this.pointsDeferred = false;
+    }
+
+    //loads the points if they were left on disk
+    //big graphs read their binary point file directly, index entries dont know where their points are so they read the graph's own file
+    private void loadDeferredPoints() {
+        if (!pointsDeferred) {
+            return;
+        }
+        try {
+            if (pointsFile != null && !pointsFile.isEmpty()) {
+                double[][] columns = PointColumnFile.read(Paths.get(pointsFile));
+                setColumns(columns[0], columns[1]);
+            } else {
+                Graph full = GraphManager.loadGraph(id);
+                if (full.hasDeferredPoints()) {
+                    setColumns(full.getXData(), full.getYData()); //the full graph keeps big point sets in a binary point file
+                } else {
+                    setPoints(full.getPoints());
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Unable to load points for graph " + id); //stays deferred so a later call can try again
+        }
+    }
+
     /**
      * Sets the regression model and updates the model name for future deserialization.
      * @param regression the regression model to apply to the graph
@@ -50,71 +199,96 @@ public class Graph {
 
     /**
      * Constructs a new Graph object with the given title and points.
-     * Generates a unique ID and records the current timestamp.
+     * Records the current timestamp. The unique ID is generated the first time it is needed.
      * @param title the title of the graph
      * @param points the 2D points to be plotted
      */
     public Graph(String title, ArrayList<Point2D.Double> points) {
         this.title = title;
         this.points = points;
-        regression = new None();
-        GenerateID();
+        setRegression(new None());
         this.timeStamp = Instant.now();
     }
 
     /**
-     * Generates a unique ID for the graph using a random 5-digit number.
-     * Ensures that the ID is not already in use.
+     * Generates a unique ID for the graph from the persisted ID counter.
+     * The counter never reuses an ID so there is no need to check the existing graphs.
      */
     private void GenerateID() {
-        Set<String> existingIds = GraphManager.getExistingGraphIds(); // You'd need to implement this
+        id = IdAllocator.nextId();
+    }
 
-        Random rand = new Random();
-        String newId;
-        do {
-            int randomId = 10000 + rand.nextInt(90000);
-            newId = String.valueOf(randomId);
-        } while (existingIds.contains(newId));
 
-        id = newId;
+    /**
+     * Copies the current regression's fit into the fields that get saved with the graph.
+     * Called by GraphManager right before the graph is written.
+     */
+    void recordFit() {
+        if (regression == null) {
+            return; //the model was never loaded, so the saved fit is still the current one
+        }
+        double[] fitted = regression.getCoefficients();
+        if (fitted == null || regression instanceof None) {
+            coefficients = null;
+            equation = null;
+            pointsDigest = null;
+        } else {
+            coefficients = fitted.clone();
+            equation = regression.getFunction();
+            pointsDigest = regression.getDataDigest();
+        }
     }
 
-
     /**
      * Loads the appropriate regression model based on the stored model name.
      * This is used when reconstructing a graph from a saved JSON file.
+     * If a fit was saved for exactly these points, its coefficients are reused so the model doesn't have to be fitted again.
      */
     public void LoadRegression() {
+        //the model gets the points as plain arrays, so big graphs read from a binary point file are never turned into point objects
+        double[] xs = getXData();
+        double[] ys = getYData();
         switch (modelName) {
             case "None":
                 regression = new None();
                 break;
             case "Linear":
-                regression = new PolynomialRegression(points, 1);
+                regression = new PolynomialRegression(xs, ys, 1);
                 break;
             case "Quadratic":
-                regression = new PolynomialRegression(points, 2);
+                regression = new PolynomialRegression(xs, ys, 2);
                 break;
             case "Cubic":
-                regression = new PolynomialRegression(points, 3);
+                regression = new PolynomialRegression(xs, ys, 3);
                 break;
             case "Quartic":
-                regression = new PolynomialRegression(points, 4);
+                regression = new PolynomialRegression(xs, ys, 4);
                 break;
             case "Exponential":
-                regression = new ExponentialRegression(points);
+                regression = new ExponentialRegression(xs, ys);
                 break;
             case "Logarithmic":
-                regression = new LogarithmicRegression(points);
+                regression = new LogarithmicRegression(xs, ys);
                 break;
             case "Power":
-                regression = new PowerRegression(points);
+                regression = new PowerRegression(xs, ys);
                 break;
             case "Logistic":
-                regression = new LogisitcRegression(points);
+                regression = new LogisitcRegression(xs, ys);
                 break;
             default:
-                System.out.println("Unknown model name");
+                //higher orders and the auto polynomial have names like "Polynomial (order 7)"
+                int order = PolynomialRegression.orderFor(modelName);
+                if (order >= 0) {
+                    regression = new PolynomialRegression(xs, ys, order);
+                } else {
+                    System.out.println("Unknown model name");
+                    regression = new None();
+                }
+        }
+        //a different fingerprint means the points changed since the fit was saved, so the model is left to fit again
+        if (coefficients != null && pointsDigest != null && pointsDigest.equals(regression.getDataDigest())) {
+            regression.restore(coefficients, equation);
         }
     }
 }
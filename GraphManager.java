@@ -2,31 +2,108 @@ import RegressionModels.*;
 import com.google.gson.Gson;
 import com.google.gson.*;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 import java.lang.reflect.Type;
 import java.time.Instant;
-import java.io.FileWriter;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.HashSet;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
- * The GraphManager class handles loading and saving Graph objects to a JSON file.
+ * The GraphManager class handles loading and saving Graph objects to JSON files.
  * It uses the Gson library to serialize and deserialize Graph data, allowing for
- * easy and human-readable file storage. It also manages cleanup of unused image files.
+ * easy and human-readable file storage. Unused image files are cleaned up by ImageSweeper.
+ *
+ * Every graph is stored in its own file under files/graphs/, so saving, loading or
+ * damaging one graph never involves the others. A small index file holds just the fields
+ * the graph gallery shows (id, title, timestamp, model name and image), so the gallery
+ * can be filled without opening any graph files.
+ *
+ * Changes to the index are appended to a journal file instead of rewriting the whole
+ * index. The journal is folded back into the index by a background compaction.
+ *
+ * Saves and deletes are queued and written a moment later on a background thread, so a
+ * burst of saves turns into one write. Whole files are written to a temp file and moved into
+ * place, so a crash mid-write never leaves a half written file behind. Anything still queued
+ * is written when the app exits.
  */
 
 public class GraphManager {
+    public static String GraphsFolderPath = "files/graphs";
+    //every graph is kept here as <id>.json
+    public static String IndexFilePath = "files/graphs/index.json";
+    //keeps the index file's path for access anywhere
+    public static String IndexJournalPath = "files/graphs/index.journal";
+    //saves and deletes are appended here as one json object per line until they get compacted into index.json
+    public static String PointsFolderPath = "files/points";
+    //binary point files for big graphs are kept here (see PointColumnFile)
+    public static int BinaryPointsThreshold = 5000;
+    //graphs with at least this many points store them in a binary point file instead of the json, 0 turns binary point files off
     public static String JsonfilePath = "files/graphs.json";
-    //keeps the data file's path for access anywhere
+    public static String JournalFilePath = "files/graphs.journal";
+    //where older versions kept every graph in one file (plus its journal), only used to move those graphs into the new layout
+
+    private static final String[] INDEX_FIELDS = {"id", "title", "timeStamp", "modelName", "imagePath"}; //the fields the gallery cards need
+    private static final int COMPACTION_ENTRIES = 64; //journal entries allowed before compaction
+    private static final long COMPACTION_MIN_BYTES = 256 * 1024; //journal size always allowed before compaction (256KB)
+    private static final Object storeLock = new Object(); //stops the background compaction and the ui from touching the files at the same time
+    private static int journalEntries = -1; //-1 until the journal has been read once
+    private static String ownSignature = ""; //what the files looked like right after our last write, used to tell our writes apart from other programs
+
+    //json handling is done by the Gson library (one of the external packages we imported)
+    //one json manager (an instance of Gson) is shared by everything in here, with the type adapter registered for our Instant class
+    //the type adapter tells the json manager how to handle the Instant class (stores our graph timestamp)
+    //it doesnt pretty print because journal entries have to stay on one line, the other files get their formatting from a JsonWriter (see writeJson)
+    private static final Gson gson = new GsonBuilder().registerTypeAdapter(Instant.class, new InstantAdapter()).create();
+    //the same, but leaving out the points, for writing the other fields without turning every point into json first
+    private static final Gson fieldsGson = gson.newBuilder().setExclusionStrategies(new ExclusionStrategy() {
+        public boolean shouldSkipField(FieldAttributes field) {
+            return field.getDeclaringClass() == Graph.class && field.getName().equals("points");
+        }
+
+        public boolean shouldSkipClass(Class<?> type) {
+            return false;
+        }
+    }).create();
+    private static final Type pointListType = new TypeToken<ArrayList<Point2D.Double>>(){}.getType(); //tells gson we want a list of points
+
+    //single background thread that does the delayed writes and the compaction. its a daemon so it never keeps the app open
+    private static final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "graph-store-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    //write-behind queue: saves and deletes wait here for a short time before they are written
+    //a newer change to the same graph replaces the older one, so a burst of saves only gets written once
+    private static final long FLUSH_DELAY_MILLIS = 300;
+    private static final long RETRY_DELAY_MILLIS = 5000; //wait before trying again after a failed write
+    private static final LinkedHashMap<String, PendingWrite> pendingWrites = new LinkedHashMap<>();
+    private static boolean flushScheduled = false;
+
+    static {
+        //whatever is still waiting in the queue gets written when the app closes (including System.exit from the close button)
+        Runtime.getRuntime().addShutdownHook(new Thread(GraphManager::flush, "graph-store-flush"));
+    }
 
    // public static void main(String[] args) {
     //everything here right now is just for testing
@@ -95,49 +172,416 @@ public class GraphManager {
     //a text file means we'd have to read straight text and implement the logic to handle all of our data (nobody wants to do this)
     //other file methods are lowk too much work to learn so here we are
 
-    //function that handles loading the graphs stored in the file
+
+    //function that handles loading the graphs for the gallery
+    //only the index is read, so each graph comes back with just its id, title, timestamp, model name and image path
+    //the rest of a graph (points, settings, saved fit) is in its own file and is read by loadGraph when the graph gets opened
     public static ArrayList<Graph> readGraphs() throws IOException {
-        //json handling is done by the Gson library (one of the external packages we imported)
-        //we first create a json manager (an instance of Gson) and register the type adapter for our Instant class
-        //the type adapter tells the json manager how to handle the Instant class (stores our graph timestamp)
-        //setPrettyPrinting means everything wont go in one line and it will get formatted nice and pretty
-        Gson gson = new GsonBuilder().registerTypeAdapter(Instant.class, new InstantAdapter()).setPrettyPrinting().create();
-        //we read the data from the file into a string and gson parses this string and loads our data into a list of graphs
-        String json = Files.readString(Paths.get(JsonfilePath));
-        Type listType = new TypeToken<ArrayList<Graph>>(){}.getType(); //this tells gson what type of object we are lokoing for (Graph)
-        ArrayList<Graph>graphs = gson.fromJson(json, listType) == null? new ArrayList<>():gson.fromJson(json, listType) ; //we use the type we defined and the json string to load everything
-        for (Graph g : graphs) {
-            g.LoadRegression(); //this sets the regression based on the regression model's name stored for the graph.
-            //we are unable to store regression models. they are a bit too complex and writing logic to make Gson parse it is too much work
-        }
-        return graphs;
-    }
-
-    //function that handles storing the graphs in the file
-    public static void writeGraphs(ArrayList<Graph> graphs) throws IOException {
-        //see readGraphs for explanations on the json stuff
-        Gson gson = new GsonBuilder().registerTypeAdapter(Instant.class, new InstantAdapter()).setPrettyPrinting().create();
+        synchronized (storeLock) {
+            migrateSingleFileStore();
+            flush(); //changes still waiting in the queue have to be on disk before reading
+            //the graphs are put in a map by id so journal entries can replace or remove them quickly
+            LinkedHashMap<String, Graph> byId = new LinkedHashMap<>();
+            readGraphArray(Paths.get(IndexFilePath), byId, false);
+            journalEntries = replayJournal(Paths.get(IndexJournalPath), byId, false);
+            for (Graph g : byId.values()) {
+                g.markIndexEntry();
+            }
+            return new ArrayList<>(byId.values());
+        }
+    }
+
+    //loads a whole graph from its own file, used when a graph is opened for editing
+    //the returned graph is a fresh object, so it can be edited without touching the one in the gallery
+    public static Graph loadGraph(String id) throws IOException {
+        Path file = graphFileFor(id);
+        synchronized (storeLock) {
+            flush();
+            try (JsonReader reader = new JsonReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+                return readGraph(reader, true);
+            }
+        }
+    }
+
+    //reads a json array of graphs one graph at a time and puts them in the map
+    //the files are read with a JsonReader which goes through the json one token at a time,
+    //so a whole file never has to be loaded into one big string and points arrays can be skipped without being parsed into objects
+    private static void readGraphArray(Path file, LinkedHashMap<String, Graph> byId, boolean withPoints) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            //an empty file or a file with just null in it means there are no graphs yet
+            if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    Graph g = readGraph(reader, withPoints);
+                    byId.put(g.getId(), g);
+                }
+                reader.endArray();
+            }
+        }
+    }
+
+    //reads one graph object
+    //every field except the points is collected into a small JsonObject and handed to gson, so gson still does the work of filling in the Graph
+    private static Graph readGraph(JsonReader reader, boolean withPoints) throws IOException {
+        JsonObject fields = new JsonObject();
+        ArrayList<Point2D.Double> points = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (!name.equals("points")) {
+                fields.add(name, JsonParser.parseReader(reader));
+            } else if (withPoints) {
+                points = gson.fromJson(reader, pointListType);
+            } else {
+                reader.skipValue(); //skipping still has to step over the text, but nothing gets built
+            }
+        }
+        reader.endObject();
+
+        Graph g = gson.fromJson(fields, Graph.class);
+        //graphs with a binary point file always leave their points on disk, its cheap to read them later
+        if (withPoints && g.getPointsFile().isEmpty()) {
+            g.setPoints(points != null ? points : new ArrayList<>());
+        } else {
+            g.deferPoints();
+        }
+        return g;
+    }
+
+    //applies every journal entry in the order they were written and returns how many entries there were
+    //an upsert moves the graph to the end of the list, just like the old removeIf + add in the save button did
+    private static int replayJournal(Path journal, LinkedHashMap<String, Graph> byId, boolean withPoints) throws IOException {
+        int entries = 0;
+        if (!Files.exists(journal)) {
+            return entries;
+        }
+        try (BufferedReader lines = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (line.isBlank()) continue;
+                try (JsonReader reader = new JsonReader(new StringReader(line))) {
+                    String op = null;
+                    String id = null;
+                    Graph g = null;
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case "op" -> op = reader.nextString();
+                            case "id" -> id = reader.nextString();
+                            case "graph" -> g = readGraph(reader, withPoints);
+                            default -> reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    if ("upsert".equals(op) && g != null) {
+                        byId.remove(g.getId());
+                        byId.put(g.getId(), g);
+                    } else if ("delete".equals(op) && id != null) {
+                        byId.remove(id);
+                    }
+                    entries++;
+                } catch (IOException | JsonParseException | IllegalStateException e) {
+                    //a line that was only half written (eg the app was killed mid save) is skipped instead of losing the whole library
+                    System.out.println("Skipping unreadable journal entry");
+                }
+            }
+        }
+        return entries;
+    }
+
+    //adds or replaces a single graph
+    //only the changed graph's own file is written, plus one line at the end of the index journal, so the cost doesnt depend on how many graphs are stored
+    //the graph is turned into json right away (so later edits to it dont leak in) but the writing happens a moment later on the writer thread
+    public static void saveGraph(Graph graph) throws IOException {
+        synchronized (storeLock) {
+            migrateSingleFileStore();
+            queueWrite(graph.getId(), prepareWrite(graph));
+        }
+    }
+
+    //removes a single graph by writing a delete entry to the index journal and deleting the graph's files
+    public static void deleteGraph(String id) throws IOException {
+        synchronized (storeLock) {
+            migrateSingleFileStore();
+            queueWrite(id, new PendingWrite(null, null, null));
+        }
+    }
+
+    //a change waiting in the write-behind queue
+    //fields is the graph's stored json (null means the graph was deleted), xs and ys are points for its binary point file if one needs writing
+    private record PendingWrite(JsonObject fields, double[] xs, double[] ys) {
+        boolean isDelete() {return fields == null;}
+    }
+
+    private static void queueWrite(String id, PendingWrite write) {
+        pendingWrites.remove(id); //removed first so the graph moves to the back, keeping the order of the journal the same as the order of the changes
+        pendingWrites.put(id, write);
+        scheduleFlush(FLUSH_DELAY_MILLIS);
+    }
+
+    private static void scheduleFlush(long delayMillis) {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            writer.schedule(GraphManager::flush, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    //writes everything waiting in the queue
+    //each graph gets its file(s) written, then all the index changes go into the journal in one append
+    //this runs on the writer thread, on exit, and before anything is read so reads always see the latest changes
+    public static void flush() {
+        synchronized (storeLock) {
+            flushScheduled = false;
+            if (pendingWrites.isEmpty()) {
+                return;
+            }
+            LinkedHashMap<String, PendingWrite> batch = new LinkedHashMap<>(pendingWrites);
+            pendingWrites.clear();
+
+            ArrayList<String> journalLines = new ArrayList<>();
+            LinkedHashMap<String, PendingWrite> failed = new LinkedHashMap<>();
+            for (var change : batch.entrySet()) {
+                String id = change.getKey();
+                PendingWrite write = change.getValue();
+                JsonObject entry = new JsonObject();
+                try {
+                    if (write.isDelete()) {
+                        Files.deleteIfExists(graphFileFor(id));
+                        Files.deleteIfExists(pointFileFor(id)); //the binary points go with it, if it had any
+                        entry.addProperty("op", "delete");
+                        entry.addProperty("id", id);
+                    } else {
+                        writeGraphFiles(id, write);
+                        entry.addProperty("op", "upsert");
+                        entry.add("graph", indexFields(write.fields()));
+                    }
+                    journalLines.add(entry.toString());
+                } catch (IOException e) {
+                    System.out.println("Unable to write graph " + id + ", will try again");
+                    failed.put(id, write);
+                }
+            }
+            try {
+                appendToJournal(journalLines);
+            } catch (IOException e) {
+                System.out.println("Unable to write graph index, will try again");
+                failed.putAll(batch); //the graph files are fine but the index doesnt know about them yet, so the whole batch goes again
+            }
+            //anything that failed goes back in the queue, unless a newer change for the same graph came in meanwhile
+            for (var retry : failed.entrySet()) {
+                pendingWrites.putIfAbsent(retry.getKey(), retry.getValue());
+            }
+            if (!pendingWrites.isEmpty()) {
+                scheduleFlush(RETRY_DELAY_MILLIS);
+            }
+        }
+    }
+
+    //makes a graph that only has the index fields of the given graph, like the ones readGraphs returns
+    //used by the repository so saved graphs dont stay fully loaded in memory
+    public static Graph toIndexEntry(Graph graph) {
+        Graph entry = gson.fromJson(indexFields(fieldsGson.toJsonTree(graph).getAsJsonObject()), Graph.class);
+        entry.markIndexEntry();
+        return entry;
+    }
+
+    //turns a graph into the json that gets stored, without writing anything yet
+    //graphs with at least BinaryPointsThreshold points get their points put in a binary point file, and the json only keeps the file's path
+    private static PendingWrite prepareWrite(Graph graph) {
+        String id = graph.getId(); //makes sure the graph has been given an id before its fields get written
+        graph.recordFit(); //saves the regression's coefficients so reopening the graph doesnt need a new fit
+        double[] xs = null;
+        double[] ys = null;
+        //a graph that still has its points in a binary point file hasnt been changed, so the file is already up to date
+        boolean pointsOnDisk = graph.hasDeferredPoints() && !graph.getPointsFile().isEmpty();
+        if (!pointsOnDisk) {
+            if (BinaryPointsThreshold > 0 && graph.getPointCount() >= BinaryPointsThreshold) {
+                //getXData/getYData give arrays that are never changed afterwards (edits replace them), so they can be written later safely
+                xs = graph.getXData();
+                ys = graph.getYData();
+                graph.setPointsFile(pointFileFor(id).toString());
+            } else {
+                graph.setPointsFile("");
+            }
+        }
+
+        //the points are left out of the json tree, so a big graph's points are never turned into json just to be thrown away
+        JsonObject fields = fieldsGson.toJsonTree(graph).getAsJsonObject();
+        if (graph.getPointsFile().isEmpty()) {
+            fields.add("points", gson.toJsonTree(graph.getPoints(), pointListType));
+        }
+        return new PendingWrite(fields, xs, ys);
+    }
+
+    //writes a graph's own file, and its binary point file first if it has one to write
+    //a graph that shrank below BinaryPointsThreshold keeps its points in the json again, so once that is written its old point file goes
+    private static void writeGraphFiles(String id, PendingWrite write) throws IOException {
+        if (write.xs() != null) {
+            PointColumnFile.write(pointFileFor(id), write.xs(), write.ys());
+        }
+        writeJson(graphFileFor(id), write.fields());
+        if (write.fields().has("points")) {
+            Files.deleteIfExists(pointFileFor(id));
+        }
+    }
+
+    //picks out the fields that go in the index
+    private static JsonObject indexFields(JsonObject fields) {
+        JsonObject entry = new JsonObject();
+        for (String name : INDEX_FIELDS) {
+            if (fields.has(name)) {
+                entry.add(name, fields.get(name));
+            }
+        }
+        return entry;
+    }
+
+    private static Path graphFileFor(String id) {
+        return Paths.get(GraphsFolderPath, id + ".json");
+    }
+
+    private static Path pointFileFor(String id) {
+        return Paths.get(PointsFolderPath, id + ".bin");
+    }
+
+    //writes a json value to a file with the same nice formatting that setPrettyPrinting used to give
+    //the json goes to a temp file next to the real one, which is synced to disk and then moved over the real file in one step
+    //so if the app crashes or the disk fills up halfway, the old file is still there untouched
+    private static void writeJson(Path file, JsonElement json) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp.toFile());
+             JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)))) {
+            writer.setIndent("  ");
+            gson.toJson(json, writer);
+            writer.flush();
+            out.getFD().sync();
+        }
+        AtomicFiles.replace(temp, file);
+    }
+
+    //adds lines to the end of the index journal
+    //a crash can only ever cut off the last line, which replayJournal skips
+    private static void appendToJournal(List<String> lines) throws IOException {
+        if (lines.isEmpty()) {
+            return;
+        }
+        synchronized (storeLock) {
+            Files.createDirectories(Paths.get(IndexJournalPath).toAbsolutePath().getParent());
+            try (FileOutputStream out = new FileOutputStream(IndexJournalPath, true);
+                 BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+                writer.flush();
+                out.getFD().sync();
+            }
+            ownSignature = storeSignature();
+            if (journalEntries >= 0) {
+                journalEntries += lines.size();
+            }
+            if (journalNeedsCompaction()) {
+                //the compaction rewrites the whole index, so it is handed to the background thread and the save returns right away
+                writer.submit(() -> {
+                    try {
+                        compact();
+                    } catch (IOException e) {
+                        System.out.println("Unable to compact graph index journal");
+                    }
+                });
+            }
+        }
+    }
+
+    //the journal is folded into the index once it has enough entries or has grown as big as the index itself
+    //this keeps reads fast while the cost of the full rewrite is spread across many saves
+    private static boolean journalNeedsCompaction() throws IOException {
+        if (journalEntries < 0) {
+            return false; //the journal hasnt been read yet so we dont know how long it is
+        }
+        long journalSize = Files.size(Paths.get(IndexJournalPath));
+        long indexSize = Files.exists(Paths.get(IndexFilePath)) ? Files.size(Paths.get(IndexFilePath)) : 0;
+        return journalEntries >= COMPACTION_ENTRIES || journalSize >= Math.max(indexSize, COMPACTION_MIN_BYTES);
+    }
 
-        //loads a file writer linked to our json file
-        FileWriter writer = new FileWriter(JsonfilePath);
-        //converts our data into a json string
-        String json = gson.toJson(graphs);
-        //writes the json string to our file
-        writer.write(json);
-        writer.close();
+    //folds the journal into a fresh index
+    public static void compact() throws IOException {
+        synchronized (storeLock) {
+            writeIndex(readGraphs());
+        }
+    }
+
+    //rewrites the index from a list of graphs and clears the journal
+    private static void writeIndex(ArrayList<Graph> graphs) throws IOException {
+        synchronized (storeLock) {
+            JsonArray index = new JsonArray();
+            for (Graph graph : graphs) {
+                index.add(indexFields(fieldsGson.toJsonTree(graph).getAsJsonObject()));
+            }
+            writeJson(Paths.get(IndexFilePath), index);
+
+            //everything in the journal is now part of the index
+            Files.deleteIfExists(Paths.get(IndexJournalPath));
+            journalEntries = 0;
+            ownSignature = storeSignature();
+        }
+    }
 
-        //code to clean up unused images
-        //graphs only store their image path so when a graph gets deleted or replaced in the file, its image stays
-        //this code checks for the used image paths and deletes the garbage
-        File folder = new File("files/images"); //gets the images folder
-        List<Path> usedImages = graphs.stream().map(graph -> Paths.get(graph.getImagePath()).normalize()).toList(); //creates a list of the stored image paths
-        //loops through the images in the folder and if it was not in the list of used images it gets packed up
-        for (File image: folder.listFiles()) {
-            Path imagePath = image.toPath().normalize();
-            if (!usedImages.contains(imagePath)) {
-                image.delete();
+    //function that handles storing a whole list of graphs
+    //every graph that is loaded gets its own file written and the index is rebuilt from the list
+    //graphs that are only index entries (from readGraphs) already have an up to date file so they are skipped
+    //single changes should go through saveGraph/deleteGraph instead
+    public static void writeGraphs(ArrayList<Graph> graphs) throws IOException {
+        synchronized (storeLock) {
+            for (Graph graph : graphs) {
+                if (!graph.isIndexEntry()) {
+                    writeGraphFiles(graph.getId(), prepareWrite(graph));
+                }
             }
+            writeIndex(graphs);
+        }
+    }
+
+    //moves graphs from the old single graphs.json file (and its journal) into the one-file-per-graph layout
+    //this only does anything the first time the new version runs, the old file is kept as graphs.json.migrated just in case
+    private static void migrateSingleFileStore() throws IOException {
+        Path oldFile = Paths.get(JsonfilePath);
+        Path oldJournal = Paths.get(JournalFilePath);
+        if (Files.exists(Paths.get(IndexFilePath)) || (!Files.exists(oldFile) && !Files.exists(oldJournal))) {
+            return;
+        }
+        LinkedHashMap<String, Graph> byId = new LinkedHashMap<>();
+        readGraphArray(oldFile, byId, true);
+        replayJournal(oldJournal, byId, true);
+        writeGraphs(new ArrayList<>(byId.values()));
+        if (Files.exists(oldFile)) {
+            Files.move(oldFile, oldFile.resolveSibling(oldFile.getFileName() + ".migrated"), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.deleteIfExists(oldJournal);
+    }
+
+    //returns true if the index files on disk are exactly what our last write left behind
+    //the repository uses this to ignore file change events that were caused by this program
+    public static boolean isOwnWrite() {
+        synchronized (storeLock) {
+            return storeSignature().equals(ownSignature);
+        }
+    }
+
+    //size and last modified time of the index and its journal, cheap to get without reading the files
+    private static String storeSignature() {
+        StringBuilder signature = new StringBuilder();
+        for (String file : new String[]{IndexFilePath, IndexJournalPath}) {
+            File f = new File(file);
+            signature.append(f.exists() ? f.length() + ":" + f.lastModified() : "-").append(";");
         }
+        return signature.toString();
     }
 
     //this can be safely ignored, but they just tell the json file manager how to handle the Instant class (once again stores our timestamps for graphs)
@@ -153,17 +597,4 @@ public class GraphManager {
         }
     }
 
-    //used to get existing graphIDs
-    public static Set<String> getExistingGraphIds() {
-        Set<String> idSet = new HashSet<>(); //using a hash set to store ids
-        try {
-            ArrayList<Graph> glist = readGraphs();
-            for (Graph graph : glist) {
-                idSet.add(graph.getId());
-            }
-        } catch (IOException e) { //catches exception
-            e.printStackTrace();
-        }
-        return idSet;
-    }
 }
@@ -0,0 +1,185 @@
+import com.google.gson.JsonParseException;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * GraphRepository keeps every stored graph's index entry in memory so the screens don't have to
+ * read and parse the graph index each time they need the list of graphs.
+ *
+ * The index is read once, the first time the graphs are needed. Saves and deletes are
+ * applied to the in-memory copy and written through to disk by GraphManager.
+ * A WatchService keeps an eye on the graphs folder so that edits made by another
+ * program (or another copy of this one) are picked up and listeners are told to refresh.
+ * Index entries only have the fields the gallery shows; use checkout to get a whole graph.
+ */
+public class GraphRepository {
+    private static GraphRepository instance;
+
+    private final LinkedHashMap<String, Graph> graphs = new LinkedHashMap<>(); //graphs by id, in the same order as the file
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+    private boolean loaded = false;
+    private boolean watching = false;
+
+    private GraphRepository() {}
+
+    /**
+     * Returns the process-wide repository, creating it the first time it is needed.
+     * @return the shared GraphRepository
+     */
+    public static synchronized GraphRepository getInstance() {
+        if (instance == null) {
+            instance = new GraphRepository();
+        }
+        return instance;
+    }
+
+    /**
+     * Returns all stored graphs. Only the first call reads the file, later calls are served from memory.
+     * The returned list is a new list so it can be sorted freely.
+     * @return list of stored graphs
+     * @throws IOException if the graph index could not be read
+     */
+    public synchronized ArrayList<Graph> getGraphs() throws IOException {
+        ensureLoaded();
+        return new ArrayList<>(graphs.values());
+    }
+
+    /**
+     * Finds a stored graph by its ID.
+     * @param id the graph ID
+     * @return the graph, or null if no graph has this ID
+     * @throws IOException if the graph index could not be read
+     */
+    public synchronized Graph findById(String id) throws IOException {
+        ensureLoaded();
+        return graphs.get(id);
+    }
+
+    /**
+     * Loads the whole graph for the graph screen to edit.
+     * The repository only keeps each graph's index fields, so this reads the graph's own file.
+     * Changes made to the returned graph only reach the repository when it is saved.
+     * @param graph the stored graph
+     * @return an independent, fully loaded copy of the graph
+     * @throws IOException if the graph's file could not be read
+     */
+    public Graph checkout(Graph graph) throws IOException {
+        return GraphManager.loadGraph(graph.getId());
+    }
+
+    /**
+     * Adds a graph or replaces the stored graph with the same ID, and writes the change to the file.
+     * @param graph the graph to save
+     * @throws IOException if the change could not be written
+     */
+    public synchronized void save(Graph graph) throws IOException {
+        ensureLoaded();
+        GraphManager.saveGraph(graph);
+        //only the index fields are kept, like the graphs loaded at startup
+        //this also means the graph screen can keep editing its own graph without changing the saved one
+        graphs.remove(graph.getId());
+        graphs.put(graph.getId(), GraphManager.toIndexEntry(graph));
+        ImageSweeper.reference(graph.getImagePath());
+    }
+
+    /**
+     * Deletes a graph by its ID and writes the change to the file.
+     * Its preview image is deleted in the background.
+     * @param id the ID of the graph to delete
+     * @throws IOException if the change could not be written
+     */
+    public synchronized void delete(String id) throws IOException {
+        ensureLoaded();
+        GraphManager.deleteGraph(id);
+        Graph removed = graphs.remove(id);
+        if (removed != null) {
+            ImageSweeper.release(removed.getImagePath());
+        }
+    }
+
+    /**
+     * Registers code to run when the graph index was changed by another program.
+     * Listeners are called on the Swing event thread.
+     * @param listener code to run after the repository reloaded the file
+     */
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    //reads the file the first time the graphs are needed and starts watching it for outside changes
+    private void ensureLoaded() throws IOException {
+        if (!loaded) {
+            reload();
+            loaded = true;
+        }
+        if (!watching) {
+            startWatching();
+            watching = true;
+        }
+    }
+
+    private synchronized void reload() throws IOException {
+        graphs.clear();
+        for (Graph g : GraphManager.readGraphs()) {
+            graphs.put(g.getId(), g);
+        }
+        ImageSweeper.track(graphs.values()); //the sweeper needs to know every image that is in use
+    }
+
+    //watches the folder holding the index on a background thread
+    //the WatchService only tells us something in the folder changed, so events caused by our own saves are filtered out with GraphManager.isOwnWrite
+    private void startWatching() {
+        Path file = Paths.get(GraphManager.IndexFilePath).toAbsolutePath();
+        Path journal = Paths.get(GraphManager.IndexJournalPath).toAbsolutePath();
+        Path folder = file.getParent();
+        WatchService watcher;
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+            Files.createDirectories(folder);
+            folder.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            System.out.println("Unable to watch graph index for changes");
+            return;
+        }
+
+        Thread thread = new Thread(() -> {
+            while (true) {
+                WatchKey key;
+                try {
+                    key = watcher.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                boolean storeChanged = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.context() instanceof Path changed) {
+                        Path changedFile = folder.resolve(changed);
+                        if (changedFile.equals(file) || changedFile.equals(journal)) {
+                            storeChanged = true;
+                        }
+                    }
+                }
+                key.reset();
+                if (storeChanged && !GraphManager.isOwnWrite()) {
+                    try {
+                        reload();
+                        for (Runnable listener : changeListeners) {
+                            SwingUtilities.invokeLater(listener);
+                        }
+                    } catch (IOException | JsonParseException e) {
+                        //the other program might still be halfway through writing, the next event will try again
+                        System.out.println("Unable to reload graphs after outside change");
+                    }
+                }
+            }
+        }, "graph-file-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
@@ -1,4 +1,4 @@
-import org.apache.commons.math3.exception.ConvergenceException;
+import org.apache.commons.math3.exception.MathIllegalStateException;
 import org.knowm.xchart.*;
 import org.knowm.xchart.style.XYStyler;
 import org.knowm.xchart.style.markers.SeriesMarkers;
@@ -6,10 +6,16 @@ import org.knowm.xchart.style.lines.SeriesLines;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.awt.geom.Point2D;
 import java.io.IOException;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 import RegressionModels.*;
 
@@ -30,8 +36,26 @@ import RegressionModels.*;
  */
 
 public class GraphScreen {
+    private static final double WARM_START_EDITS = 0.1; //refits start from the last fit when at most this share of the points changed
+
     private MainScreen mscreen; //instance of main screen
     private GraphScreen gscreen;
+    private JFrame frame;
+    private JPanel graphArea; //holds the chart, which gets swapped out every time a job finishes
+    private JPanel equation;
+    private JLabel eqLabel;
+    private JProgressBar progress; //shown while a job is running
+    private JTextArea pointArea;
+    private JButton plotButton;
+    private JButton saveButton;
+    private PlotJob currentJob; //the newest job, only its chart is shown
+    //plots and saves run one at a time on this thread, so the window never freezes while a fit or a 300 DPI image is being made
+    //and each job finds the graph the way the job before it left it. every window has its own, so a slow fit in one doesnt hold up the others
+    private final ExecutorService plotter = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "graph-plotter");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     /**
      * Constructs a GraphScreen with a reference to the main screen and a graph to edit.
@@ -70,15 +94,16 @@ public class GraphScreen {
      */
 
     public void plot(Graph graph) {
-        JFrame frame = new JFrame("Graph");
+        frame = new JFrame("Graph");
         //makes the frame for the graph manager
 
         //displays chart window with equation
         frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
         frame.setSize(1280, 720);
-        //adds the graph panel
-        frame.add(new XChartPanel<>(drawGraph(graph, frame)), BorderLayout.CENTER);
-        //adds the equation panel is there is a regression stored for the graph
+        //adds the graph panel, the chart itself is drawn in the background once the window is up
+        graphArea = new JPanel(new BorderLayout());
+        graphArea.setPreferredSize(new Dimension(800, 600));
+        frame.add(graphArea, BorderLayout.CENTER);
 
         //Control panels for input and options
         JPanel controlPanel = new JPanel();
@@ -86,45 +111,35 @@ public class GraphScreen {
         controlPanel.setAlignmentX(Component.CENTER_ALIGNMENT);
         controlPanel.setBorder(BorderFactory.createEmptyBorder(10,10,10,10));//Padding around panel
 
-        JTextArea pointArea = new JTextArea(5,20);//Text Area for points
+        pointArea = new JTextArea(5,20);//Text Area for points
 
         JComboBox<String> regressionMenu = new JComboBox<>(new String[]{//Drop down menu for regression
-                "None", "Exponential", "Logarithmic", "Logistic", "Polynomial", "Power"
+                "None", "Best Fit", "Exponential", "Logarithmic", "Logistic", "Polynomial", "Power"
         });
         regressionMenu.setMaximumSize(new Dimension(1500,100));//Change dimension of drop down
 
         JCheckBox connectPoints = new JCheckBox("Connect Points");//Checkbox for connecting points
 
-        //if graph has points populate
-        if (!graph.getPoints().isEmpty()) {
-            StringBuilder sb = new StringBuilder();
-            for (Point2D.Double p : graph.getPoints()) {
-                sb.append(p.getX()).append(", ").append(p.getY()).append("\n");
-            }
-            pointArea.setText(sb.toString());
-            regressionMenu.setSelectedItem(graph.getRegression().getModelName());
-            connectPoints.setSelected(graph.isConnect_points());
-        }
+        //every polynomial order is picked through the one "Polynomial" option (a new graph starts as None, not connected)
+        regressionMenu.setSelectedItem(graph.getRegression() instanceof PolynomialRegression ? "Polynomial" : graph.getRegression().getModelName());
+        connectPoints.setSelected(graph.isConnect_points());
 
-        JButton plotButton = new JButton("Plot Graph");//Button to plot graph
-        JButton saveButton = new JButton("Save Graph");//Button to save graph
+        plotButton = new JButton("Plot Graph");//Button to plot graph
+        saveButton = new JButton("Save Graph");//Button to save graph
         JButton cmdClose = new JButton("Close");
         cmdClose.setBackground(new Color(255, 199, 206)); // Light red for Close
 
-        JPanel equation = new JPanel();
-        JLabel eqLabel = new JLabel("Best Fit Equation: ");
+        equation = new JPanel();
+        eqLabel = new JLabel("Best Fit Equation: ");
         eqLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
         equation.setLayout(new BoxLayout(equation, BoxLayout.Y_AXIS));
-        if (!Objects.equals(graph.getRegression().getModelName(), "None")) {
-            eqLabel.setSize(equation.getWidth(), equation.getHeight());
-            eqLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
-            equation.removeAll();
-            equation.add(eqLabel);
-            equation.add(graph.getRegression().RenderEquation());
-            equation.setVisible(true);
-        }else{
-            equation.setVisible(false);
-        }
+        equation.setVisible(false); //filled in when the first plot is done
+
+        progress = new JProgressBar();
+        progress.setIndeterminate(true);
+        progress.setStringPainted(true);
+        progress.setMaximumSize(new Dimension(1500, 30));
+        progress.setVisible(false);
         //Adding components to panel
         controlPanel.add(new JLabel("Points (x,y per line):"));
         controlPanel.add(new JScrollPane(pointArea));
@@ -135,6 +150,7 @@ public class GraphScreen {
         controlPanel.add(plotButton);
         controlPanel.add(saveButton);
         controlPanel.add(cmdClose);
+        controlPanel.add(progress);
         for (Component comp : controlPanel.getComponents()) {
             if (comp instanceof JComponent) {
                 ((JComponent) comp).setAlignmentX(Component.CENTER_ALIGNMENT);
@@ -148,25 +164,10 @@ public class GraphScreen {
 
         //Plot Button Logic
         plotButton.addActionListener(e -> {
-            //Create graph from user input
-            updateFromInput(graph, graph.getTitle(), pointArea.getText(), (String) regressionMenu.getSelectedItem(), connectPoints.isSelected(), frame);
-            //Replaces current graph display with new one
-            JPanel newGraphPanel = new XChartPanel<>(drawGraph(graph, frame));
-            frame.getContentPane().removeAll(); // clear old content
-            frame.add(controlPanel, BorderLayout.WEST);
-            frame.add(newGraphPanel, BorderLayout.CENTER);
-            if (!Objects.equals(graph.getRegression().getModelName(), "None")){
-                eqLabel.setSize(equation.getWidth(), equation.getHeight());
-                eqLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
-                equation.removeAll();
-                equation.add(eqLabel);
-                equation.add(graph.getRegression().RenderEquation());
-                equation.setVisible(true);
-            }else{
-                equation.setVisible(false);
-            }
-            frame.revalidate();//Refreshes the layout
-            frame.repaint();//Repaints the frame
+            //only the dialog for the polynomial order is shown here, the rest happens in the background
+            String regType = (String) regressionMenu.getSelectedItem();
+            int order = Objects.equals(regType, "Polynomial") ? askOrder(frame) : 0;
+            start(new PlotJob(graph, new Input(graph.getTitle(), pointArea.getText(), regType, order, connectPoints.isSelected()), false));
         });
         //Save Button Logic
         saveButton.addActionListener(e->{
@@ -177,70 +178,257 @@ public class GraphScreen {
                 JOptionPane.showMessageDialog(frame,"No name provided");
                 return;
             }
-            //Create graph
-            updateFromInput(graph, name.trim(),pointArea.getText(),(String) regressionMenu.getSelectedItem(),connectPoints.isSelected(),frame);
-            XYChart newChart = drawGraph(graph, frame);
-            JPanel newGraphPanel = new XChartPanel<>(newChart);
-            frame.getContentPane().removeAll(); // clear old content
-            frame.add(controlPanel, BorderLayout.WEST);
-            frame.add(newGraphPanel, BorderLayout.CENTER);
-            frame.revalidate();//Refreshes the layout
-            frame.repaint();//Repaints the frame
-            try{
-                //handles generating a picture of the graph plot for the graph preveiw in the graph inventory manager (to be implemented)
+            String regType = (String) regressionMenu.getSelectedItem();
+            int order = Objects.equals(regType, "Polynomial") ? askOrder(frame) : 0;
+            start(new PlotJob(graph, new Input(name.trim(), pointArea.getText(), regType, order, connectPoints.isSelected()), true));
+        });
+
+        //Close button logic
+        cmdClose.addActionListener(e -> frame.dispose());
+        //a plot still running when the window closes isnt needed anymore, but a save is finished before the thread goes away
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                if (currentJob != null && !currentJob.saving) {
+                    currentJob.stop();
+                }
+                plotter.shutdown();
+            }
+        });
+
+        //draws the graph as it was opened, and fills in the points in the background since a big graph makes a lot of text
+        //until then there is nothing to plot or save, as the points box would be empty
+        pointArea.setEditable(false);
+        plotButton.setEnabled(false);
+        saveButton.setEnabled(false);
+        start(new PlotJob(graph, null, false));
+    }
+
+    //what the user entered when they clicked Plot or Save, read on the EDT so the job never touches the Swing components
+    private record Input(String title, String points, String regType, int order, boolean connect) {}
+
+    //hands a job to the plotter thread. a plot from an earlier click that is still running is stale, so it gets cancelled
+    //(interrupting it stops its fit too). saves are never cancelled, the user is waiting for them to be written
+    private void start(PlotJob job) {
+        if (currentJob != null && !currentJob.saving) {
+            currentJob.stop();
+        }
+        currentJob = job;
+        progress.setString(job.saving ? "Saving..." : "Plotting...");
+        progress.setVisible(true);
+        frame.revalidate();
+        plotter.execute(job);
+    }
+
+    /**
+     * One click of Plot or Save. Reads the points, fits the regression and builds the chart on the plotter thread,
+     * and for a save also writes the image and the graph, then shows the result on the EDT.
+     * Only the newest job's chart is shown; a save that finishes after a newer click still reports that it was saved.
+     */
+    private class PlotJob extends SwingWorker<XYChart, String> {
+        private final Graph graph;
+        private final Input input; //null when the graph is only drawn, like when the window opens
+        private final boolean saving;
+        private final Color background = frame.getBackground(); //jobs are made on the EDT, so the frame can be read here
+        private final List<String> problems = new ArrayList<>(); //messages for the user, shown once the job is done
+        private volatile List<RegressionModel> fitting = List.of(); //the models this job fits (every candidate for Best Fit), so a newer click can cancel them
+        private String pointsText; //the points as they go in the points box, only made when the window opens
+
+        PlotJob(Graph graph, Input input, boolean saving) {
+            this.graph = graph;
+            this.input = input;
+            this.saving = saving;
+        }
+
+        @Override
+        protected XYChart doInBackground() throws IOException {
+            if (input == null) {
+                publish("Loading points...");
+                pointsText = pointsText(graph);
+            } else {
+                publish("Reading points...");
+                updateFromInput(graph, input.title(), input.points(), input.regType(), input.order(), input.connect(), problems, models -> {
+                    fitting = models;
+                    publish("Trying every model...");
+                });
+            }
+            fitting = List.of(graph.getRegression());
+            publish("Fitting " + graph.getRegression().getModelName() + "...");
+            XYChart chart = drawGraph(graph, background, problems);
+            if (saving) {
+                publish("Saving...");
+                //handles generating a picture of the graph plot for the graph preveiw in the graph inventory manager
                 //firstly it makes an image path as files/images/graphid.png
                 String imagePath = "files/images/" + graph.getId();
                 graph.setImagePath(imagePath + ".png");
-                save(newChart, imagePath);
-                //Adds and saves the graph to the graph file
-                ArrayList<Graph> graphs = GraphManager.readGraphs();
-                graphs.removeIf(g -> g.getId().equals(graph.getId()));
-                graphs.add(graph);
-                GraphManager.writeGraphs(graphs);
+                save(chart, imagePath);
+                //Adds or replaces the graph in storage (only this graph's own file gets written)
+                GraphRepository.getInstance().save(graph);
+            }
+            return chart;
+        }
+
+        //cancels the job and asks its fits to stop at the optimizer's next evaluation
+        //the interrupt covers the parts before the fit starts. a cancelled model is never fitted again, the next job makes a new one
+        void stop() {
+            cancel(true);
+            for (RegressionModel model : fitting) {
+                model.cancel();
+            }
+        }
 
+        @Override
+        protected void process(List<String> steps) {
+            if (this == currentJob) {
+                progress.setString(steps.get(steps.size() - 1));
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (input == null && !isCancelled()) {
+                pointArea.setText(pointsText);
+                pointArea.setCaretPosition(0);
+                pointArea.setEditable(true);
+                plotButton.setEnabled(true);
+                saveButton.setEnabled(true);
+            }
+            boolean newest = this == currentJob;
+            if (newest) {
+                progress.setVisible(false);
+                frame.revalidate();
+            }
+            if (isCancelled()) {
+                return;
+            }
+            XYChart chart;
+            try {
+                chart = get();
+            } catch (InterruptedException | ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                if (!(cause instanceof FitCancelledException)) {
+                    JOptionPane.showMessageDialog(frame, (saving ? "Error saving graph: " : "Error plotting graph: ") + cause.getMessage());
+                }
+                return;
+            }
+            showProblems(frame, problems);
+            if (newest) {
+                show(chart, input != null && Objects.equals(input.regType(), "Best Fit"));
+            }
+            if (saving) {
                 //refreshes table
-                if (this.mscreen != null) {
-                   this.mscreen.refreshDisplayPanel();
+                if (mscreen != null) {
+                    mscreen.refreshDisplayPanel();
                 }
+                JOptionPane.showMessageDialog(frame, "Graph Saved");
+            }
+        }
 
-                JOptionPane.showMessageDialog(frame,"Graph Saved");
-            }catch(IOException ex){
-                JOptionPane.showMessageDialog(frame,"Error saving graph: " +ex.getMessage());
+        //Replaces current graph display with the new one and updates the equation
+        private void show(XYChart chart, boolean bestFit) {
+            RegressionModel regression = graph.getRegression();
+            graphArea.removeAll(); // clear old content
+            graphArea.add(new DownsampledChartPanel(chart, "Data Points", graph.getXData(), graph.getYData(), graph.isConnect_points()), BorderLayout.CENTER);
+            //with best fit the label says which model won
+            eqLabel.setText(bestFit ? "Best Fit Equation (" + regression.getModelName() + "): " : "Best Fit Equation: ");
+            if (!Objects.equals(regression.getModelName(), "None")){
+                eqLabel.setSize(equation.getWidth(), equation.getHeight());
+                eqLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+                equation.removeAll();
+                equation.add(eqLabel);
+                equation.add(regression.RenderEquation());
+                //how the fit went, for large data fits this includes how much the last pass over all the points still improved it
+                FitStats stats = regression.getFitStats();
+                if (stats != null) {
+                    JLabel statsLabel = new JLabel("<html><div style='width:330px'>" + stats + "</div></html>");
+                    statsLabel.setFont(statsLabel.getFont().deriveFont(11f));
+                    statsLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+                    equation.add(statsLabel);
+                }
+                equation.setVisible(true);
+            }else{
+                equation.setVisible(false);
             }
+            frame.revalidate();//Refreshes the layout
+            frame.repaint();//Repaints the frame
+        }
+    }
 
-        });
+    //one "x, y" line per point, from the graph's columns so a graph loaded from a binary point file isnt turned into a list of objects
+    private static String pointsText(Graph graph) {
+        double[] xs = graph.getXData();
+        double[] ys = graph.getYData();
+        StringBuilder sb = new StringBuilder(xs.length * 24);
+        for (int i = 0; i < xs.length; i++) {
+            sb.append(xs[i]).append(", ").append(ys[i]).append("\n");
+        }
+        return sb.toString();
+    }
 
-        //Close button logic
-        cmdClose.addActionListener(e -> frame.dispose());
+    //shows what went wrong with the points in one dialog instead of one per line, so a bad paste of thousands of lines can be dismissed
+    private static void showProblems(Component parent, List<String> problems) {
+        if (problems.isEmpty()) {
+            return;
+        }
+        int shown = Math.min(problems.size(), 10);
+        String message = String.join("\n", problems.subList(0, shown));
+        if (problems.size() > shown) {
+            message += "\n...and " + (problems.size() - shown) + " more";
+        }
+        JOptionPane.showMessageDialog(parent, message);
+    }
+
+    //Prompt for polynomial order
+    private static int askOrder(Component parent) {
+        String input = JOptionPane.showInputDialog(parent, "Enter the order(1-" + PolynomialRegression.MAX_ORDER + ") or auto: ");
+        try {
+            if (input != null && input.trim().equalsIgnoreCase("auto")) {
+                return PolynomialRegression.AUTO; //the fit picks the order itself
+            }
+            int order = Integer.parseInt(input.trim());
+            if(order<1||order>PolynomialRegression.MAX_ORDER) throw new NumberFormatException();
+            return order;
+        } catch (NumberFormatException | NullPointerException e) {
+            JOptionPane.showMessageDialog(parent, "Invalid input. Defaulting to order 2");
+            return 2; //default to quadratic
+        }
     }
 
     /**
      * Builds or updates a Graph object based on user input:
      * - Parses input point text
      * - Sets regression type
-     * - Handles polynomial degree prompts
+     * Runs on the plotter thread. If the job is cancelled while the points are read the graph is left as it was.
      *
      * @param graph     The graph object to modify.
      * @param title     The title for the graph.
      * @param newPoints A string containing points in (x,y) format per line.
      * @param regType   The regression model name.
+     * @param order     The polynomial order, used when regType is "Polynomial".
      * @param connect   Whether to connect points with lines.
-     * @param parent    The UI component for error dialogs.
+     * @param problems  Collects the lines that couldn't be read, to be shown to the user.
+     * @param fitting   Told about the models Best Fit is about to fit, so they can be cancelled.
      */
-    private static void updateFromInput(Graph graph, String title, String newPoints, String regType, boolean connect, Component parent){
+    private static void updateFromInput(Graph graph, String title, String newPoints, String regType, int order, boolean connect, List<String> problems,
+                                        Consumer<List<RegressionModel>> fitting){
         //Parse input into graph points
         String[] lines = newPoints.split("\\n");
         ArrayList<Point2D.Double> points = new ArrayList<>();
         for (String line:lines){
+            if (Thread.currentThread().isInterrupted()) {
+                return; //a newer click replaced this one
+            }
             try{
                 String[] parts = line.split(",");
                 double x = Double.parseDouble(parts[0].trim());
                 double y = Double.parseDouble(parts[1].trim());
                 points.add(new Point2D.Double(x,y));
             } catch(Exception e){
-                JOptionPane.showMessageDialog(parent, "Invalid point format: " + line);
+                problems.add("Invalid point format: " + line);
             }
         }
+        ArrayList<Point2D.Double> oldPoints = graph.getPoints();
+        RegressionModel previous = graph.getRegression();
         graph.setPoints(points);
         graph.setTitle(title);
         graph.setConnect_points(connect);//Connect option
@@ -250,22 +438,58 @@ public class GraphScreen {
             case "Exponential" -> graph.setRegression(new ExponentialRegression(points));
             case "Logarithmic" -> graph.setRegression(new LogarithmicRegression(points));
             case "Logistic" -> graph.setRegression(new LogisitcRegression(points));
-            case "Polynomial" -> {
-                //Prompt for polynomial order
-                String input = JOptionPane.showInputDialog("Enter the order(1-4): ");
+            case "Polynomial" -> graph.setRegression(new PolynomialRegression(points,order));
 
-                int order = 2; //default to quadratic
-                try {
-                    order = Integer.parseInt(input);
-                    if(order<1||order>4) throw new NumberFormatException();
-                } catch (NumberFormatException e) {
-                    JOptionPane.showMessageDialog(null, "Invalid input. Defaulting to order 2");
-                    order = 2;
-                }
-                graph.setRegression(new PolynomialRegression(points,order));
+            case "Power" -> graph.setRegression(new PowerRegression(points));
+            case "Best Fit" -> {
+                //fits every model at once and keeps the best one, which is saved under its own name like any other model
+                List<RegressionModel> candidates = BestFit.candidates(graph.getXData(), graph.getYData());
+                fitting.accept(candidates);
+                List<BestFit.Score> ranking = BestFit.rank(candidates);
+                graph.setRegression(ranking.isEmpty() ? new None() : ranking.get(0).model());
             }
+        }
+        //if the model is the same as before and it is kept up to date from running sums, only the edited points are applied to it
+        //so refitting after changing a few points doesnt depend on how many points there are
+        RegressionModel chosen = graph.getRegression();
+        if (previous.isOnline() && !previous.isCancelled() && oldPoints != null && Objects.equals(previous.getModelName(), chosen.getModelName())) {
+            applyEdits(previous, oldPoints, points);
+            graph.setRegression(previous);
+        } else if (chosen.isOnlineExact()) {
+            chosen.startOnline();
+        } else if (oldPoints != null && !oldPoints.isEmpty() && countEdits(oldPoints, points) <= WARM_START_EDITS * points.size()) {
+            chosen.warmStartFrom(previous); //the same model fitted before a small edit is a much better starting point than a fresh guess
+        }
+        //after a bigger edit (a new paste, a cleared table) the last fit says little about the new points, so the model seeds itself
+    }
 
-            case "Power" -> graph.setRegression(new PowerRegression(points));
+    //how many points were changed, added or removed, counted line by line like applyEdits
+    private static int countEdits(ArrayList<Point2D.Double> before, ArrayList<Point2D.Double> after) {
+        int common = Math.min(before.size(), after.size());
+        int edits = Math.abs(before.size() - after.size());
+        for (int i = 0; i < common; i++) {
+            if (!before.get(i).equals(after.get(i))) {
+                edits++;
+            }
+        }
+        return edits;
+    }
+
+    //passes the differences between the old and new points to an online regression, line by line
+    private static void applyEdits(RegressionModel regression, ArrayList<Point2D.Double> before, ArrayList<Point2D.Double> after) {
+        int common = Math.min(before.size(), after.size());
+        for (int i = 0; i < common; i++) {
+            Point2D.Double was = before.get(i);
+            Point2D.Double now = after.get(i);
+            if (!was.equals(now)) {
+                regression.updatePoint(was.getX(), was.getY(), now.getX(), now.getY());
+            }
+        }
+        for (int i = common; i < after.size(); i++) {
+            regression.addPoint(after.get(i).getX(), after.get(i).getY());
+        }
+        for (int i = common; i < before.size(); i++) {
+            regression.removePoint(before.get(i).getX(), before.get(i).getY());
         }
     }
 
@@ -276,11 +500,14 @@ public class GraphScreen {
      * - Regression lines (if applicable)
      * - X and Y axes (y=0 and x=0)
      *
-     * @param graph The Graph object to render.
-     * @param frame The parent frame used to sync colors with the chart background.
+     * Doesn't touch any Swing components, so it can run off the EDT.
+     *
+     * @param graph      The Graph object to render.
+     * @param background The parent frame's color, to sync with the chart background.
+     * @param problems   Collects a message if the regression can't be fitted to the points.
      * @return An XYChart ready to be used in an XChartPanel.
      */
-    private static XYChart drawGraph(Graph graph, Frame frame) {
+    private static XYChart drawGraph(Graph graph, Color background, List<String> problems) {
         //this block initialises parameters for the graph plot area
         //min and max axis are the points between which the graph show display its plot. this is gotten from the boundaries of the data points
         Point2D min_axis = new Point2D.Double(0, 0);
@@ -288,17 +515,15 @@ public class GraphScreen {
         Point2D xy_padding; //padding is added to the data bounds to make a plot area
         double padding = 0.05; //fraction of scale to pad by
 
-        ArrayList<Point2D.Double> data = graph.getPoints();
         RegressionModel regression = graph.getRegression();
 
-        //Firstly the plot points need to be obtained and separated into separate x and y lists
-        List<Double> x_data = new ArrayList<>();
-        List<Double> y_data = new ArrayList<>();
-        for (Point2D point : data) {
-            double y = point.getY();
-            double x = point.getX();
-            x_data.add(x);
-            y_data.add(y);
+        //Firstly the plot points need to be obtained as separate x and y arrays
+        //plain double arrays are handed straight to the chart, so no Double objects are made per point
+        double[] x_data = graph.getXData();
+        double[] y_data = graph.getYData();
+        for (int i = 0; i < x_data.length; i++) {
+            double y = y_data[i];
+            double x = x_data[i];
             //sets boundaries for drawing points
             if (y < min_axis.getY())
                 min_axis.setLocation(min_axis.getX(), y);
@@ -322,29 +547,34 @@ public class GraphScreen {
         //the chartStyler is a custom component linked to the chart that deals with a bunch of styling logic
         XYStyler chartStyler = chart.getStyler();
 
-        if (!graph.getPoints().isEmpty()) {
+        if (x_data.length > 0) {
             //calculates the bounds for the graph to show its plot on by applying padding to the data boundaries
             Point2D min_padded = new Point2D.Double(min_axis.getX() - xy_padding.getX(), min_axis.getY() - xy_padding.getY());
             Point2D max_padded = new Point2D.Double(max_axis.getX() + xy_padding.getX(), max_axis.getY() + xy_padding.getY());
 
             //plots points and connects dots if necessary as shown by the ternary operator in setLineStyle()
-            chart.addSeries("Data Points", x_data, y_data).setMarker(SeriesMarkers.CIRCLE).setLineStyle(graph.isConnect_points()?SeriesLines.SOLID:SeriesLines.NONE).setShowInLegend(false);
+            //only as many points as the chart has pixels for are drawn, the panel picks them again from all the points when it is zoomed
+            int[] shown = Downsampler.select(x_data, y_data, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, graph.isConnect_points(), chart.getWidth(), chart.getHeight());
+            chart.addSeries("Data Points", Downsampler.pick(x_data, shown), Downsampler.pick(y_data, shown)).setMarker(SeriesMarkers.CIRCLE).setLineStyle(graph.isConnect_points()?SeriesLines.SOLID:SeriesLines.NONE).setShowInLegend(false);
             if (!Objects.equals(regression.getModelName(), "None")) {
                 //the graphing library (xChart) doesnt allow continuous lines so the regression model needs to generate points along its curve line
                 //these points are plotted and connected by the charting library
                 regression.setX_range(min_padded.getX(), max_padded.getX()); //this passes the plot area to the regression
                 regression.setY_limits(maxY_fit);
+                regression.setPlotSize(chart.getWidth(), chart.getHeight()); //the curve only gets as many points as the chart has pixels to show them
                 //this allows it to know where it needs to generate points for
                 try {
                     regression.fit();
-                    chart.addSeries(regression.getModelName(), regression.getxFit(), regression.getyFit()).setMarker(SeriesMarkers.NONE).setLineStyle(SeriesLines.SOLID).setShowInLegend(false);
+                    FitCurve curve = regression.getCurve();
+                    chart.addSeries(regression.getModelName(), curve.xValues(), curve.yValues()).setMarker(SeriesMarkers.NONE).setLineStyle(SeriesLines.SOLID).setShowInLegend(false);
                     double[] y_range = regression.getY_range();
                     double min = Math.min(y_range[0], min_padded.getY());
                     double max = Math.max(y_range[1], max_padded.getY());
                     chart.addSeries("y=0", new double[]{min_padded.getX(), max_padded.getX()}, new double[]{0,0}).setMarker(SeriesMarkers.NONE).setLineColor(Color.MAGENTA); // y=0 axis
                     chart.addSeries("x=0", new double[]{0,0}, new double[]{min, max}).setMarker(SeriesMarkers.NONE).setLineColor(Color.GREEN); // x=0 axis
-                } catch (ConvergenceException | IllegalArgumentException e) {
-                    JOptionPane.showMessageDialog(null, "Invalid Points for Regression");
+                } catch (MathIllegalStateException | IllegalArgumentException e) {
+                    //the fitter couldnt settle on an answer (or ran out of its budget) for these points
+                    problems.add(e.getMessage() != null ? "Invalid Points for Regression: " + e.getMessage() : "Invalid Points for Regression");
                     regression = new None();
                     graph.setRegression(regression);
                 }
@@ -363,7 +593,7 @@ public class GraphScreen {
         }
         //allows us to zoom into sections of the graph
         chartStyler.setZoomEnabled(true).setZoomResetByButton(true).setLegendVisible(false);
-        chartStyler.setChartBackgroundColor(frame.getBackground());
+        chartStyler.setChartBackgroundColor(background);
 
         //returns the chart panel to the plot function
         return chart;
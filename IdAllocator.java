@@ -0,0 +1,114 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * IdAllocator hands out graph IDs from a counter that is saved in a small file,
+ * so getting a new ID never has to read the graph file or retry random numbers.
+ *
+ * IDs are reserved from the file in blocks, so the file is only written once every
+ * BLOCK_SIZE new graphs. If the app closes before a block is used up, the rest of the
+ * block is skipped, which is fine because IDs only need to be unique, not gapless.
+ *
+ * Graphs made before this existed use random 5-digit IDs (10000-99999). The counter
+ * starts at FIRST_ID, above that range, so old IDs stay valid and can never collide with new ones.
+ */
+public class IdAllocator {
+    public static String CounterFilePath = "files/next_id.txt";
+    //the first id that hasn't been reserved yet is kept here
+
+    private static final long FIRST_ID = 100000; //just above the old random 5-digit ids
+    private static final int BLOCK_SIZE = 32; //ids reserved per write of the counter file
+    private static final Pattern LEGACY_ID = Pattern.compile("\"id\"\\s*:\\s*\"(\\d+)\""); //an id in a graph file written by an older version
+
+    private static long next = -1; //next id to hand out, -1 until the counter file is read
+    private static long reservedUntil = -1; //ids up to (but not including) this one have been saved as reserved
+
+    /**
+     * Returns a new unique graph ID.
+     * @return the ID as a string
+     */
+    public static synchronized String nextId() {
+        if (next < 0 || next >= reservedUntil) {
+            reserveBlock();
+        }
+        return String.valueOf(next++);
+    }
+
+    //reserves the next block of ids by moving the counter in the file forward
+    private static void reserveBlock() {
+        Path counterFile = Paths.get(CounterFilePath);
+        long start = next;
+        if (start < 0) {
+            start = readCounter(counterFile);
+        }
+        long end = start + BLOCK_SIZE;
+        try {
+            //written to a temp file and moved over the real one so a crash can't leave a half written counter
+            Path temp = counterFile.resolveSibling(counterFile.getFileName() + ".tmp");
+            Files.writeString(temp, String.valueOf(end), StandardCharsets.UTF_8);
+            AtomicFiles.replace(temp, counterFile);
+        } catch (IOException e) {
+            //the ids are still unique for this run, they just might be handed out again if the app is restarted
+            System.out.println("Unable to save graph id counter");
+        }
+        next = start;
+        reservedUntil = end;
+    }
+
+    private static long readCounter(Path counterFile) {
+        try {
+            if (Files.exists(counterFile)) {
+                return Math.max(FIRST_ID, Long.parseLong(Files.readString(counterFile).trim()));
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("Unable to read graph id counter, rebuilding it");
+        }
+        return recoverCounter();
+    }
+
+    //migration path for when there is no counter file (first run after upgrading, or the file was lost)
+    //old 5-digit ids are below FIRST_ID so they are left alone, but any counter ids already in use have to be skipped
+    //the ids are read straight from the files on disk and not through the repository, because nextId is called while
+    //the repository and the store are locked for a save, and going back through them from here could deadlock
+    private static long recoverCounter() {
+        long start = FIRST_ID;
+        //every graph is stored as <id>.json, so the file names are enough
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(GraphManager.GraphsFolderPath), "*.json")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                start = Math.max(start, counterAfter(name.substring(0, name.length() - ".json".length())));
+            }
+        } catch (NoSuchFileException e) {
+            //no graphs stored in the new layout yet
+        } catch (IOException e) {
+            System.out.println("Unable to check existing graph ids");
+        }
+        //graphs saved by older versions that haven't been moved into the new layout yet
+        for (String legacy : new String[]{GraphManager.JsonfilePath, GraphManager.JournalFilePath}) {
+            try {
+                Path file = Paths.get(legacy);
+                if (Files.exists(file)) {
+                    Matcher id = LEGACY_ID.matcher(Files.readString(file));
+                    while (id.find()) {
+                        start = Math.max(start, counterAfter(id.group(1)));
+                    }
+                }
+            } catch (IOException e) {
+                System.out.println("Unable to check existing graph ids in " + legacy);
+            }
+        }
+        return start;
+    }
+
+    //the counter value that comes after an id, or FIRST_ID for ids that can't collide with the counter
+    private static long counterAfter(String id) {
+        try {
+            return Math.max(FIRST_ID, Long.parseLong(id) + 1);
+        } catch (NumberFormatException ignored) {
+            return FIRST_ID; //non numeric ids (like the index file's name) can't collide with the counter
+        }
+    }
+}
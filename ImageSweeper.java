@@ -0,0 +1,121 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ImageSweeper cleans up graph preview images that no graph uses anymore.
+ *
+ * It keeps a hashed set of the image paths the stored graphs point to, which the repository
+ * updates as graphs are saved and deleted, so checking an image is a single lookup.
+ * The sweep itself runs on a background thread, every few minutes or as soon as enough
+ * graphs have been deleted, so saving a graph never waits for it.
+ */
+public class ImageSweeper {
+    public static String ImagesFolderPath = "files/images";
+
+    private static final long SWEEP_INTERVAL_MINUTES = 5; //time between regular sweeps
+    private static final int DELETIONS_BEFORE_SWEEP = 20; //deleted graphs that trigger an early sweep
+    private static final long GRACE_PERIOD_MILLIS = 2 * 60 * 1000; //new images are left alone for a while, the graph they belong to might not be saved yet
+
+    private static final Set<Path> referenced = new HashSet<>();
+    private static boolean tracking = false; //the sweep only runs once it knows about every stored graph, otherwise it would delete images that are still used
+    private static int deletionsSinceSweep = 0;
+    private static ScheduledExecutorService sweeper;
+
+    /**
+     * Replaces the set of used images with the images of the given graphs and starts the regular sweeps.
+     * @param graphs every stored graph
+     */
+    public static synchronized void track(Collection<Graph> graphs) {
+        referenced.clear();
+        for (Graph g : graphs) {
+            add(g.getImagePath());
+        }
+        tracking = true;
+        if (sweeper == null) {
+            sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "image-sweeper");
+                t.setDaemon(true);
+                return t;
+            });
+            sweeper.scheduleWithFixedDelay(ImageSweeper::sweep, SWEEP_INTERVAL_MINUTES, SWEEP_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Marks an image as used by a saved graph.
+     * @param imagePath path of the image
+     */
+    public static synchronized void reference(String imagePath) {
+        add(imagePath);
+    }
+
+    /**
+     * Marks an image as no longer used because its graph was deleted, and deletes it in the background.
+     * @param imagePath path of the image
+     */
+    public static synchronized void release(String imagePath) {
+        Path image = normalize(imagePath);
+        if (image == null) {
+            return;
+        }
+        referenced.remove(image);
+        deletionsSinceSweep++;
+        if (sweeper != null) {
+            sweeper.execute(() -> {
+                try {
+                    Files.deleteIfExists(image);
+                } catch (IOException e) {
+                    System.out.println("Unable to delete image " + image);
+                }
+            });
+            //lots of deletes usually means there is more garbage around (eg images of graphs deleted by another program), so sweep early
+            if (deletionsSinceSweep >= DELETIONS_BEFORE_SWEEP) {
+                sweeper.execute(ImageSweeper::sweep);
+            }
+        }
+    }
+
+    //deletes every image in the images folder that isnt used by a graph
+    private static void sweep() {
+        Set<Path> used;
+        synchronized (ImageSweeper.class) {
+            if (!tracking) {
+                return;
+            }
+            used = new HashSet<>(referenced);
+            deletionsSinceSweep = 0;
+        }
+        File[] images = new File(ImagesFolderPath).listFiles();
+        if (images == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (File image : images) {
+            if (!used.contains(normalize(image.getPath())) && now - image.lastModified() > GRACE_PERIOD_MILLIS) {
+                image.delete();
+            }
+        }
+    }
+
+    private static void add(String imagePath) {
+        Path image = normalize(imagePath);
+        if (image != null) {
+            referenced.add(image);
+        }
+    }
+
+    //paths are stored in one form (absolute, no . or ..) so the same file always gives the same set entry
+    private static Path normalize(String path) {
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+        return Paths.get(path).toAbsolutePath().normalize();
+    }
+}
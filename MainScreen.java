@@ -3,7 +3,9 @@ import java.awt.*;
 import java.awt.event.*;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
@@ -88,6 +90,8 @@ public class MainScreen extends JPanel {
         add(pnlCommand, BorderLayout.SOUTH);
 
         refreshDisplayPanel(); // Load graphs on startup
+        //reloads the cards if the graph index gets changed by another program
+        GraphRepository.getInstance().addChangeListener(this::refreshDisplayPanel);
     }
 
     /**
@@ -96,23 +100,17 @@ public class MainScreen extends JPanel {
      */
     public static void main(String[] args) {
         File folder = new File("files");
-        File json = new File(folder, "graphs.json");
+        File graphs = new File(folder, "graphs");
         File images = new File(folder, "images");
         try {
             // Create folder if it doesn't exist
-            if (!folder.exists()) {
-                folder.mkdirs();
-            }
+            Files.createDirectories(folder.toPath());
 
-            // Create images subfolder
-            if (!images.exists()) {
-                images.mkdirs();
-            }
+            // Create graphs subfolder (each graph gets its own file in here, plus the index)
+            Files.createDirectories(graphs.toPath());
 
-            // Create the data file
-            if (!json.exists()) {
-                json.createNewFile();
-            }
+            // Create images subfolder
+            Files.createDirectories(images.toPath());
         } catch (IOException e) {
             JOptionPane.showMessageDialog(
                     null,
@@ -143,14 +141,15 @@ public class MainScreen extends JPanel {
     }
 
     /**
-     * Reads graphs from persistent storage and updates the display panel.
+     * Gets the stored graphs from the graph repository and updates the display panel.
+     * The graphs are only read from disk the first time, after that they come from memory.
      */
     public void refreshDisplayPanel() {
         int width = scrollPane.getViewport().getWidth(); // width available for content
         int height = scrollPane.getViewport().getHeight();
         updateGridLayout(width, height, pnlDisplay.getComponentCount());
         try {
-            glist = GraphManager.readGraphs();
+            glist = GraphRepository.getInstance().getGraphs();
             populateDisplayPanel(glist);
             if (glist.isEmpty()) {
                 JOptionPane.showMessageDialog(this, "No data found. Add graphs to get started");
@@ -189,7 +188,7 @@ public class MainScreen extends JPanel {
             String formatted = timeStamp.format(formatter);
 
             JLabel timeLabel = new JLabel("Created: " + formatted);
-            JLabel modelLabel = new JLabel("Model: " + graph.getRegression().getModelName());
+            JLabel modelLabel = new JLabel("Model: " + graph.getModelName()); //uses the stored name so the points dont have to be loaded
 
             JPanel topPanel = new JPanel(new BorderLayout());
             topPanel.setOpaque(false); // so it blends with the card
@@ -211,15 +210,9 @@ public class MainScreen extends JPanel {
                         "Confirm Deletion", JOptionPane.YES_NO_OPTION);
                 if (confirm == JOptionPane.YES_OPTION) {
                     glist.remove(graph);
-                    // Try deleting associated image file if it exists
-                    if (graph.getImagePath() != null) {
-                        java.io.File imageFile = new java.io.File(graph.getImagePath());
-                        if (imageFile.exists()) {
-                            imageFile.delete();
-                        }
-                    }
                     try{
-                        GraphManager.writeGraphs(glist);
+                        //the repository also has the graph's image deleted
+                        GraphRepository.getInstance().delete(graph.getId());
                     } catch (IOException ex) {
                         JOptionPane.showMessageDialog(thisForm, "Error deleting graph: " + ex.getMessage());
                     }
@@ -252,11 +245,7 @@ public class MainScreen extends JPanel {
             card.addMouseListener(new MouseAdapter() {
               //  @Override
                 public void mouseClicked(MouseEvent e) {
-                    try {
-                        openGraphForEditing(graph);
-                    } catch (IOException ex) {
-                        throw new RuntimeException(ex);
-                    }
+                    openGraphForEditing(graph);
                 }
 
                 //@Override
@@ -285,13 +274,31 @@ public class MainScreen extends JPanel {
     }
 
     /**
-     * Opens the GraphScreen for editing the provided Graph object.
+     * Opens the GraphScreen for editing a copy of the provided Graph object,
+     * so unsaved edits don't change the stored graph.
+     * The graph is loaded in the background and the window opens once it is ready; a failed load shows an error.
      * @param g Graph to edit
-     * @throws IOException if regression model loading fails
      */
-    public void openGraphForEditing(Graph g) throws IOException {
-        g.LoadRegression();
-        new GraphScreen(thisForm, g);
+    public void openGraphForEditing(Graph g) {
+        //the graph's file (and the points its regression needs) are read on a background thread, so opening a big graph doesnt freeze the gallery
+        new SwingWorker<Graph, Void>() {
+            @Override
+            protected Graph doInBackground() throws IOException {
+                Graph full = GraphRepository.getInstance().checkout(g);
+                full.getRegression(); //builds the model from the points, which loads them
+                return full;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    new GraphScreen(thisForm, get());
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(thisForm, "Error opening graph: " + cause.getMessage());
+                }
+            }
+        }.execute();
     }
 
     /**
@@ -306,12 +313,10 @@ public class MainScreen extends JPanel {
             }
 
             try {
-                ArrayList<Graph> allGraphs = GraphManager.readGraphs();
-                for (Graph g : allGraphs) {
-                    if (g.getId().equals(inputId.trim())) {
-                        openGraphForEditing(g);
-                        return;
-                    }
+                Graph g = GraphRepository.getInstance().findById(inputId.trim());
+                if (g != null) {
+                    openGraphForEditing(g);
+                    return;
                 }
                 JOptionPane.showMessageDialog(thisForm, "Graph ID not found.");
             } catch (IOException ex) {
@@ -332,35 +337,19 @@ public class MainScreen extends JPanel {
             }
 
             try {
-                ArrayList<Graph> allGraphs = GraphManager.readGraphs();
-                boolean found = false;
-
-                //loops through graphs to find id and get confirmation message
-                for (int i = 0; i < allGraphs.size(); i++) {
-                    Graph g = allGraphs.get(i);
-                    if (g.getId().equals(inputId.trim())) {
-                        int confirm = JOptionPane.showConfirmDialog(thisForm,
-                                "Are you sure you want to delete the graph titled \"" + g.getTitle() + "\"?",
-                                "Confirm Deletion", JOptionPane.YES_NO_OPTION);
-                        if (confirm == JOptionPane.YES_OPTION) {
-                            allGraphs.remove(i);
-                            // Try deleting associated image file if it exists
-                            if (g.getImagePath() != null) {
-                                java.io.File imageFile = new java.io.File(g.getImagePath());
-                                if (imageFile.exists()) {
-                                    imageFile.delete();
-                                }
-                            }
-                            GraphManager.writeGraphs(allGraphs);
-                            thisForm.refreshDisplayPanel();
-                            JOptionPane.showMessageDialog(thisForm, "Graph deleted.");
-                        }
-                        found = true;
-                        break;
+                //looks up the id and gets confirmation message
+                Graph g = GraphRepository.getInstance().findById(inputId.trim());
+                if (g != null) {
+                    int confirm = JOptionPane.showConfirmDialog(thisForm,
+                            "Are you sure you want to delete the graph titled \"" + g.getTitle() + "\"?",
+                            "Confirm Deletion", JOptionPane.YES_NO_OPTION);
+                    if (confirm == JOptionPane.YES_OPTION) {
+                        //the repository also has the graph's image deleted
+                        GraphRepository.getInstance().delete(g.getId());
+                        thisForm.refreshDisplayPanel();
+                        JOptionPane.showMessageDialog(thisForm, "Graph deleted.");
                     }
-                }
-
-                if (!found) {
+                } else {
                     JOptionPane.showMessageDialog(thisForm, "Graph ID not found.");
                 }
 
@@ -401,7 +390,7 @@ public class MainScreen extends JPanel {
             // If ok is selected, action is performed
             if (option == JOptionPane.OK_OPTION) {
                 try {
-                    glist = GraphManager.readGraphs(); //reads graphs
+                    glist = GraphRepository.getInstance().getGraphs(); //gets graphs from memory, no file read
 
                     // Sort based on selected radio button
                     if (rbtnAZ.isSelected()) {
@@ -452,7 +441,7 @@ public class MainScreen extends JPanel {
             // If ok is selected, action is performed
             if (option == JOptionPane.OK_OPTION) {
                 try {
-                    glist = GraphManager.readGraphs(); //reads graphs
+                    glist = GraphRepository.getInstance().getGraphs(); //gets graphs from memory, no file read
 
                     // Sort based on selected radio button
                     if (rbtnNewestToOldest.isSelected()) {
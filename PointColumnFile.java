@@ -0,0 +1,105 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+/**
+ * PointColumnFile reads and writes the binary files used to store the points of big graphs.
+ *
+ * Instead of writing every point as {"x":..,"y":..} in the json file, the x values and
+ * the y values are each written as one block of little-endian doubles (8 bytes per number).
+ * Reading memory-maps the file and copies each block straight into a double[],
+ * so no text has to be parsed and no object is made per point.
+ *
+ * File layout:
+ * - int  magic number ("GPTS")
+ * - int  format version
+ * - long number of points (n)
+ * - n doubles of x values, then n doubles of y values
+ */
+public class PointColumnFile {
+    private static final int MAGIC = 0x47505453; //"GPTS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int CHUNK_DOUBLES = 8192; //doubles written per buffer when saving
+
+    /**
+     * Writes the x and y columns to a binary point file.
+     * The file is written to a temp file first and then moved into place, so readers never see half a file.
+     * @param path where to save the file
+     * @param xs the x values
+     * @param ys the y values, same length as xs
+     * @throws IOException if the file could not be written
+     */
+    public static void write(Path path, double[] xs, double[] ys) throws IOException {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("x and y columns must be the same length");
+        }
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putLong(xs.length).flip();
+            writeFully(channel, header);
+
+            ByteBuffer buffer = ByteBuffer.allocate(CHUNK_DOUBLES * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            writeColumn(channel, buffer, xs);
+            writeColumn(channel, buffer, ys);
+            channel.force(false);
+        }
+        AtomicFiles.replace(temp, path);
+    }
+
+    /**
+     * Reads a binary point file through a memory map.
+     * @param path the file to read
+     * @return two arrays, the x values at [0] and the y values at [1]
+     * @throws IOException if the file could not be read or is not a point file
+     */
+    public static double[][] read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            if (map.remaining() < HEADER_BYTES || map.getInt() != MAGIC) {
+                throw new IOException("Not a point file: " + path);
+            }
+            int version = map.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported point file version " + version + ": " + path);
+            }
+            long count = map.getLong();
+            if (count < 0 || count > Integer.MAX_VALUE || HEADER_BYTES + count * 2 * Double.BYTES > channel.size()) {
+                throw new IOException("Point file is damaged: " + path);
+            }
+
+            //the doubles are copied out of the map in one bulk get per column
+            DoubleBuffer doubles = map.asDoubleBuffer();
+            double[] xs = new double[(int) count];
+            double[] ys = new double[(int) count];
+            doubles.get(xs);
+            doubles.get(ys);
+            return new double[][]{xs, ys};
+        }
+    }
+
+    private static void writeColumn(FileChannel channel, ByteBuffer buffer, double[] column) throws IOException {
+        for (int start = 0; start < column.length; start += CHUNK_DOUBLES) {
+            int end = Math.min(column.length, start + CHUNK_DOUBLES);
+            buffer.clear();
+            buffer.asDoubleBuffer().put(column, start, end - start);
+            buffer.limit((end - start) * Double.BYTES);
+            writeFully(channel, buffer);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package RegressionModels;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+//fits every kind of model to the same points at once and ranks them, so the user doesnt have to try each one by hand
+//the fits run side by side on the common ForkJoinPool, so the whole thing takes about as long as the slowest fit
+//the candidates are made first so the caller can hold on to them and cancel them, which is how a stale Best Fit is stopped
+public class BestFit {
+    /**
+     * How well one fitted model matches the points.
+     * @param model the fitted model
+     * @param rSquared share of the spread in y that the curve explains (1 is a perfect fit)
+     * @param rmse typical distance between a point and the curve
+     * @param aic Akaike information criterion, lower is better
+     * @param bic Bayesian information criterion, lower is better. charges more than aic for extra coefficients
+     */
+    public record Score(RegressionModel model, double rSquared, double rmse, double aic, double bic) {}
+
+    /**
+     * Fits every model to the points and ranks them, best first, by BIC.
+     * BIC is used because R² and RMSE always get better with more coefficients, so they would always pick the highest polynomial.
+     * Models that fail to fit, are cancelled, or have as many coefficients as there are points, are left out.
+     * If the calling thread is interrupted every candidate is cancelled and the models ranked so far are returned.
+     * @param candidates the models to fit, from candidates
+     * @return the fitted models with their scores, best first
+     */
+    public static List<Score> rank(List<RegressionModel> candidates) {
+        List<Future<Score>> fits = new ArrayList<>();
+        for (RegressionModel model : candidates) {
+            fits.add(ForkJoinPool.commonPool().submit(() -> score(model)));
+        }
+        List<Score> scores = new ArrayList<>();
+        for (Future<Score> fit : fits) {
+            try {
+                Score score = fit.get(); //waiting here can be interrupted, unlike invokeAll
+                if (score != null) {
+                    scores.add(score);
+                }
+            } catch (InterruptedException e) {
+                //the fits still running stop at their next evaluation, so they dont hold up the pool for whoever comes next
+                for (RegressionModel model : candidates) {
+                    model.cancel();
+                }
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                //this model couldnt be fitted to these points (or was cancelled), it just isnt ranked
+            }
+        }
+        scores.sort(Comparator.comparingDouble(Score::bic));
+        return scores;
+    }
+
+    /**
+     * One of every model: each polynomial order that has fewer coefficients than there are points, and the curve models.
+     * @param xs the x values
+     * @param ys the y values
+     * @return the unfitted models, to hand to rank
+     */
+    public static List<RegressionModel> candidates(double[] xs, double[] ys) {
+        List<RegressionModel> models = new ArrayList<>();
+        for (int order = 1; order <= PolynomialRegression.MAX_ORDER && order + 1 < xs.length; order++) {
+            models.add(new PolynomialRegression(xs, ys, order));
+        }
+        models.add(new ExponentialRegression(xs, ys));
+        models.add(new LogarithmicRegression(xs, ys));
+        models.add(new PowerRegression(xs, ys));
+        models.add(new LogisitcRegression(xs, ys));
+        return models;
+    }
+
+    private static Score score(RegressionModel model) {
+        model.solveFit();
+        int n = model.xData.length;
+        int k = model.parameterCount();
+        double rss = model.residualSumOfSquares();
+        if (!Double.isFinite(rss) || n <= k) {
+            return null;
+        }
+        double mean = 0;
+        for (double y : model.yData) {
+            mean += y;
+        }
+        mean /= n;
+        double tss = 0;
+        for (double y : model.yData) {
+            tss += (y - mean) * (y - mean);
+        }
+        double logLikelihood = n * Math.log(Math.max(rss, Double.MIN_NORMAL) / n); //an exact fit would otherwise give ln(0)
+        return new Score(model,
+                tss > 0 ? 1 - rss / tss : (rss == 0 ? 1 : 0),
+                Math.sqrt(rss / n),
+                logLikelihood + 2 * k,
+                logLikelihood + k * Math.log(n));
+    }
+}
@@ -0,0 +1,73 @@
+package RegressionModels;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//remembers the last few fits so drawing the same graph again (plotting twice, reopening it, saving right after plotting)
+//doesnt run the fitter or sample the curve again
+//a fit is found by the fingerprint of its points, the model name (which includes the polynomial order) and the plot area it was sampled for
+//the least recently used fit is dropped once there are more than CAPACITY
+public class FitCache {
+    public static final int CAPACITY = 32;
+    private static final FitCache shared = new FitCache(CAPACITY);
+
+    private final LinkedHashMap<String, Entry> entries;
+    private long hits;
+    private long misses;
+
+    private record Entry(double[] coefficients, String function, FitCurve curve, double[] y_range, FitStats fitStats) {}
+
+    public FitCache(int capacity) {
+        //access order makes every get move the entry to the back, so the eldest entry is the least recently used
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public static FitCache shared() {return shared;}
+
+    //the key for the model's next fit, or null if it shouldnt be cached (eg online models, whose points arent known)
+    static String keyFor(RegressionModel model) {
+        String digest = model.getDataDigest();
+        if (digest.isEmpty() || model.x_range == null) {
+            return null;
+        }
+        return digest + "|" + model.getModelName()
+                + "|" + model.x_range[0] + "|" + model.x_range[1]
+                + "|" + model.y_limits[0] + "|" + model.y_limits[1]
+                + "|" + model.plotWidth + "x" + model.plotHeight;
+    }
+
+    //fills in the model from a cached fit, returns false if there isnt one
+    synchronized boolean load(String key, RegressionModel model) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return false;
+        }
+        hits++;
+        model.coefficients = entry.coefficients().clone();
+        model.function = entry.function();
+        model.curve.copyFrom(entry.curve());
+        model.y_range[0] = entry.y_range()[0]; //the cached curve's spread replaces whatever the model drew before
+        model.y_range[1] = entry.y_range()[1];
+        model.fitStats = entry.fitStats(); //how the cached fit went, not the stats of whatever this model fitted last
+        return true;
+    }
+
+    synchronized void store(String key, RegressionModel model) {
+        FitCurve curve = new FitCurve(Math.max(model.curve.size(), 1));
+        curve.copyFrom(model.curve);
+        entries.put(key, new Entry(model.coefficients.clone(), model.function, curve, model.y_range.clone(), model.fitStats));
+    }
+
+    public synchronized long getHits() {return hits;}
+    public synchronized long getMisses() {return misses;}
+    public synchronized int size() {return entries.size();}
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+}
@@ -0,0 +1,11 @@
+package RegressionModels;
+
+//thrown out of fit() when RegressionModel.cancel was called while it was running (or the thread running it was interrupted),
+//eg because the user changed the points again
+public class FitCancelledException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public FitCancelledException(String modelName) {
+        super(modelName + " fit was cancelled");
+    }
+}
@@ -0,0 +1,72 @@
+package RegressionModels;
+
+import java.util.Arrays;
+
+//the sampled points of a best fit curve, kept in two plain double arrays that grow as needed
+//a refit clears it and writes over the same arrays, so sampling a curve again doesnt allocate anything per point
+public class FitCurve {
+    private double[] xs;
+    private double[] ys;
+    private int size;
+
+    public FitCurve() {
+        this(256);
+    }
+
+    public FitCurve(int capacity) {
+        xs = new double[Math.max(capacity, 1)];
+        ys = new double[Math.max(capacity, 1)];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    //makes room for at least this many points up front, eg when the number of samples is known before sampling
+    public void ensureCapacity(int capacity) {
+        if (capacity > xs.length) {
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+        }
+    }
+
+    public void add(double x, double y) {
+        if (size == xs.length) {
+            ensureCapacity(xs.length * 2);
+        }
+        xs[size] = x;
+        ys[size] = y;
+        size++;
+    }
+
+    //makes this curve a copy of another one, reusing this curve's arrays when they are big enough
+    public void copyFrom(FitCurve other) {
+        ensureCapacity(other.size);
+        System.arraycopy(other.xs, 0, xs, 0, other.size);
+        System.arraycopy(other.ys, 0, ys, 0, other.size);
+        size = other.size;
+    }
+
+    public int size() {return size;}
+    public boolean isEmpty() {return size == 0;}
+    public double getX(int i) {return xs[i];}
+    public double getY(int i) {return ys[i];}
+
+    /**
+     * Returns the x values as an array of exactly size() numbers, ready to hand to a chart.
+     * Always a copy: the chart keeps the array it is given, while a refit writes over the curve's own arrays.
+     * @return the x values of the curve
+     */
+    public double[] xValues() {
+        return Arrays.copyOf(xs, size);
+    }
+
+    /**
+     * Returns the y values as an array of exactly size() numbers, ready to hand to a chart.
+     * Always a copy: the chart keeps the array it is given, while a refit writes over the curve's own arrays.
+     * @return the y values of the curve
+     */
+    public double[] yValues() {
+        return Arrays.copyOf(ys, size);
+    }
+}
@@ -0,0 +1,18 @@
+package RegressionModels;
+
+/**
+ * What happened during one fit, for finding out why a fit was slow or didn't converge.
+ * @param model the model's name
+ * @param outcome how the fit ended, eg "converged", "solved directly", "hit iteration budget", "timed out" or "cancelled"
+ * @param iterations optimizer iterations, 0 for models solved directly
+ * @param evaluations times the optimizer worked out the curve and its gradient over all the points
+ * @param cost the optimizer's final cost (square root of the sum of squared residuals), NaN when it wasn't used
+ * @param lastPassGain for large data fits, the share the last full pass lowered the sum of squared residuals by (see RegressionModel.getLastPassGain), otherwise 0
+ * @param elapsedNanos total time spent solving
+ */
+public record FitStats(String model, String outcome, int iterations, int evaluations, double cost, double lastPassGain, long elapsedNanos) {
+    public String toString() {
+        return model + ": " + outcome + " after " + iterations + " iterations, " + evaluations + " evaluations, cost "
+                + String.format("%.4g", cost) + ", " + String.format("%.1f", elapsedNanos / 1e6) + "ms";
+    }
+}
@@ -0,0 +1,74 @@
+package RegressionModels;
+
+import org.apache.commons.math3.analysis.ParametricUnivariateFunction;
+
+import java.util.Random;
+
+//checks the hand written partial derivatives of the nonlinear models against numerical ones (central differences)
+//a wrong derivative doesnt stop Levenberg-Marquardt from running, it just makes it take far more steps or fail, so it is easy to miss
+//run main after changing any model's gradient: it tries each model over many random coefficients and x values and reports the worst mismatch
+public class JacobianChecker {
+    private static final double TOLERANCE = 1e-5; //largest relative difference that still counts as matching
+    private static final int TRIALS = 2000;
+
+    /**
+     * Compares a function's analytic gradient with central differences at one set of coefficients and one x.
+     * @param function the function to check
+     * @param x where to check
+     * @param params the coefficients to check at
+     * @return the largest relative difference over all the coefficients
+     */
+    public static double check(ParametricUnivariateFunction function, double x, double[] params) {
+        double[] analytic = function.gradient(x, params);
+        double worst = 0;
+        for (int k = 0; k < params.length; k++) {
+            double h = 1e-6 * Math.max(1, Math.abs(params[k]));
+            double[] up = params.clone();
+            double[] down = params.clone();
+            up[k] += h;
+            down[k] -= h;
+            double numeric = (function.value(x, up) - function.value(x, down)) / (2 * h);
+            double difference = Math.abs(analytic[k] - numeric) / Math.max(1, Math.max(Math.abs(analytic[k]), Math.abs(numeric)));
+            worst = Math.max(worst, difference);
+        }
+        return worst;
+    }
+
+    //the worst mismatch for a model over random coefficients in [-range, range] and random x values in [xMin, xMax]
+    private static double checkModel(RegressionModel model, int parameters, double range, double xMin, double xMax, Random random) {
+        ParametricUnivariateFunction function = model.parametricFunction();
+        double worst = 0;
+        for (int trial = 0; trial < TRIALS; trial++) {
+            double[] params = new double[parameters];
+            for (int k = 0; k < parameters; k++) {
+                params[k] = (random.nextDouble() * 2 - 1) * range;
+            }
+            double x = xMin + random.nextDouble() * (xMax - xMin);
+            double difference = check(function, x, params);
+            if (Double.isFinite(difference)) { //values that overflow cant be compared
+                worst = Math.max(worst, difference);
+            }
+        }
+        return worst;
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(args.length > 0 ? Long.parseLong(args[0]) : 42);
+        double[] none = new double[0];
+        double[] results = {
+                checkModel(new ExponentialRegression(none, none), 2, 3, -5, 5, random),
+                checkModel(new PowerRegression(none, none), 2, 3, 0.01, 10, random),
+                checkModel(new LogisitcRegression(none, none), 3, 5, -10, 10, random),
+        };
+        String[] names = {"Exponential", "Power", "Logistic"};
+        boolean allMatch = true;
+        for (int i = 0; i < names.length; i++) {
+            boolean matches = results[i] <= TOLERANCE;
+            allMatch &= matches;
+            System.out.println(names[i] + ": worst relative difference " + String.format("%.2e", results[i]) + (matches ? " ok" : " WRONG"));
+        }
+        if (!allMatch) {
+            System.exit(1);
+        }
+    }
+}
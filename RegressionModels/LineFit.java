@@ -0,0 +1,47 @@
+package RegressionModels;
+
+//ordinary least squares for a straight line v = intercept + slope * u, built up one pair at a time
+//keeps running means and co-moments (Welford's method) instead of raw sums, so big u or v values dont lose precision
+//used to fit the straight line you get after taking logs, which gives the nonlinear models a starting point (or the answer)
+class LineFit {
+    private long count;
+    private double meanU, meanV;
+    private double spreadU; //sum of (u - meanU)^2
+    private double spreadV; //sum of (v - meanV)^2
+    private double coSpread; //sum of (u - meanU) * (v - meanV)
+
+    //pairs where either number isnt finite (eg the log of 0) are skipped
+    void add(double u, double v) {
+        if (!Double.isFinite(u) || !Double.isFinite(v)) {
+            return;
+        }
+        count++;
+        double du = u - meanU;
+        meanU += du / count;
+        double dv = v - meanV;
+        meanV += dv / count;
+        spreadU += du * (u - meanU);
+        spreadV += dv * (v - meanV);
+        coSpread += du * (v - meanV);
+    }
+
+    long getCount() {return count;}
+
+    //a line needs two pairs with different u values
+    boolean isDefined() {
+        return count >= 2 && spreadU > 0;
+    }
+
+    //true when every pair is (to rounding) exactly on the line
+    boolean isExact() {
+        return isDefined() && (spreadV == 0 || 1 - coSpread * coSpread / (spreadU * spreadV) < 1e-12);
+    }
+
+    double slope() {
+        return coSpread / spreadU;
+    }
+
+    double intercept() {
+        return meanV - slope() * meanU;
+    }
+}
@@ -1,59 +1,53 @@
 package RegressionModels;
 
-import org.apache.commons.math3.analysis.ParametricUnivariateFunction;
-import org.apache.commons.math3.fitting.SimpleCurveFitter;
-
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
 
 public class LogarithmicRegression extends RegressionModel {
-    private ParametricUnivariateFunction logarithmic;
-
     public LogarithmicRegression(ArrayList<Point2D.Double> data) {
-        for (Point2D point : data) {
-            points.add(point.getX(), point.getY());
-        }
-        logarithmic = new ParametricUnivariateFunction() {
-            //implementing methods for the parametric univariate function
-            // this class is passed to a fitter which uses expressions for the y value and gradient to calculate coeffiecients
-            public double value(double x, double... params) {
-                double a = params[0];
-                double b = params[1];
-                return a + b * Math.log(x);
-            }
-
-            public double[] gradient(double x, double... params) {
-                // returns the partial derivatives of the expression with respect to each paramter in an array
-                double b = params[1];
-                double a = params[0];
-                return new double[]{1, (Math.log(x))};
-            }
-        };
+        this(xValues(data), yValues(data));
+    }
+
+    public LogarithmicRegression(double[] xs, double[] ys) {
+        setData(xs, ys);
         modelName = "Logarithmic";
     }
 
-    public void fit() {
-        SimpleCurveFitter fitter = SimpleCurveFitter.create(logarithmic, new double[]{1, 1});
-        double[] coeff = fitter.fit(points.toList());
+    //y = a + b*ln(x) is a straight line in ln(x), so least squares gives a and b directly without the nonlinear fitter
+    protected double[] solve() {
+        if (moments != null) {
+            return moments.line();
+        }
+        LineFit line = new LineFit();
+        for (int i = 0; i < xData.length; i++) {
+            line.add(Math.log(xData[i]), yData[i]); //ln(x) doesnt exist for x <= 0, those points are skipped
+        }
+        if (!line.isDefined()) {
+            throw new IllegalArgumentException("Logarithmic regression needs at least two different positive x values");
+        }
+        return new double[]{line.intercept(), line.slope()};
+    }
+
+    protected RunningMoments newMoments() {
+        return new RunningMoments(1, true, false, 1);
+    }
+
+    public boolean isOnlineExact() {
+        return true;
+    }
+
+    protected void clampRange() {
+        //ln(x) only exists for x > 0
         if (x_range[0] < detail) {
             x_range[0] = detail;
         }
-        for (double x = x_range[0]; x <= x_range[1]; x += detail) {
-            double y = coeff[0] + coeff[1] * Math.log(x);
-            if (y < y_limits[0] || y > y_limits[1]) {
-                continue;
-            }
-            xFit.add(x);
-            yFit.add(y);
-            if (y < y_range[0]) {
-                y_range[0] = y;
-            }
-            if (y > y_range[1]) {
-                y_range[1] = y;
-            }
-        }
+    }
+
+    protected double value(double x, double[] coeff) {
+        return coeff[0] + coeff[1] * Math.log(x);
+    }
 
-        function = "y = " + String.format("%.3f", coeff[0]) + " + " + String.format("%.3f", coeff[1]) + "\\ln{x}";
-        //System.out.println(function);
+    protected String describe(double[] coeff) {
+        return "y = " + String.format("%.3f", coeff[0]) + " + " + String.format("%.3f", coeff[1]) + "\\ln{x}";
     }
 }
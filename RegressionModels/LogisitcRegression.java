@@ -1,63 +1,93 @@
 package RegressionModels;
 
 import org.apache.commons.math3.analysis.ParametricUnivariateFunction;
-import org.apache.commons.math3.fitting.SimpleCurveFitter;
 
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 public class LogisitcRegression extends RegressionModel {
-    private ParametricUnivariateFunction logisitc;
+    private static final ParametricUnivariateFunction logisitc = new ParametricUnivariateFunction() {
+        //implementing methods for the parametric univariate function
+        // this class is passed to a fitter which uses expressions for the y value and gradient to calculate coeffiecients
+        public double value(double x, double... params) {
+            double a = params[0];
+            double b = params[1];
+            double c = params[2];
+            return a / (1 + Math.exp(-b * (x - c)));
+        }
 
-    public LogisitcRegression(ArrayList<Point2D.Double> data) {
-        for (Point2D point : data) {
-            points.add(point.getX(), point.getY());
+        public double[] gradient(double x, double... params) {
+            // returns the partial derivatives of the expression with respect to each paramter in an array
+            //with s = 1/(1 + e^(-b(x - c))), e/(1 + e)^2 is s(1 - s), which doesnt overflow when e gets huge
+            double b = params[1];
+            double a = params[0];
+            double c = params[2];
+            double s = 1 / (1 + Math.exp(-b * (x - c)));
+            double slope = s * (1 - s);
+            return new double[]{s, a * (x - c) * slope, -a * b * slope};
         }
-        logisitc = new ParametricUnivariateFunction() {
-            //implementing methods for the parametric univariate function
-            // this class is passed to a fitter which uses expressions for the y value and gradient to calculate coeffiecients
-            public double value(double x, double... params) {
-                double a = params[0];
-                double b = params[1];
-                double c = params[2];
-                return a / (1 + Math.exp(-b * (x - c)));
-            }
+    };
 
-            public double[] gradient(double x, double... params) {
-                // returns the partial derivatives of the expression with respect to each paramter in an array
-                double b = params[1];
-                double a = params[0];
-                double c = params[2];
-                double expPart = Math.exp(-b * (x - c));
-                double denom = Math.pow(1 + expPart, 2);
-                return new double[]{1 / (1 + expPart), a * (x - b) * expPart / denom, -a * b * expPart / denom};
-            }
-        };
+    public LogisitcRegression(ArrayList<Point2D.Double> data) {
+        this(xValues(data), yValues(data));
+    }
+
+    public LogisitcRegression(double[] xs, double[] ys) {
+        setData(xs, ys);
         modelName = "Logistic";
     }
 
-    public void fit() {
-        SimpleCurveFitter fitter = SimpleCurveFitter.create(logisitc, new double[]{1, 1, 1});
-        double[] coeff = fitter.fit(points.toList());
+    protected double[] solve() {
+        double[] start = startingGuess();
+        if (warmStart != null) {
+            double[] warm = refineWarm(logisitc, start); //null when the edit moved the curve too far from the last fit
+            if (warm != null) {
+                return warm;
+            }
+        }
+        return refine(logisitc, start, false);
+    }
+
+    ParametricUnivariateFunction parametricFunction() {
+        return logisitc;
+    }
+
+    //a rough logistic curve through the data for the optimizer to start from, instead of {1, 1, 1} which is usually far off
+    //a is the top of the curve, so the biggest y. c is the middle of the S, so the median x
+    //the S is steepest in the middle where its slope is ab/4, so b comes from the slope of a straight line through the points
+    private double[] startingGuess() {
+        if (xData.length == 0) {
+            return new double[]{1, 1, 1};
+        }
+        double top = Double.NEGATIVE_INFINITY;
+        double bottom = Double.POSITIVE_INFINITY;
+        LineFit line = new LineFit();
+        for (int i = 0; i < xData.length; i++) {
+            top = Math.max(top, yData[i]);
+            bottom = Math.min(bottom, yData[i]);
+            line.add(xData[i], yData[i]);
+        }
+        double a = top > 0 ? top : bottom; //a curve below the x axis levels off at its lowest y instead
+        if (a == 0) {
+            a = 1;
+        }
+        double[] sorted = xData.clone();
+        Arrays.sort(sorted);
+        double c = sorted[sorted.length / 2];
+        double b = line.isDefined() && line.slope() != 0 ? 4 * line.slope() / a : 1;
+        return new double[]{a, b, c};
+    }
+
+    protected double value(double x, double[] coeff) {
+        return coeff[0] / (1 + Math.exp(-coeff[1] * (x - coeff[2])));
+    }
+
+    protected String describe(double[] coeff) {
         double a = coeff[0];
         double b = coeff[1];
         double c = coeff[2];
-        for (double x = x_range[0]; x <= x_range[1]; x += detail) {
-            double y = a / (1 + Math.exp(-b * (x - c)));
-            if (y < y_limits[0] || y > y_limits[1]) {
-                continue;
-            }
-            xFit.add(x);
-            yFit.add(y);
-            if (y < y_range[0]) {
-                y_range[0] = y;
-            }
-            if (y > y_range[1]) {
-                y_range[1] = y;
-            }
-        }
         //y = \frac{a}{1 + e^{-b(x - c)}}
-        function = "y = " + "\\frac{" + String.format("%.3f", a) + "}{ 1 + e^{" + (b>0?"-":"") + String.format("%.3f", Math.abs(b)) + "(x " +(c>0?"-":"+")+ String.format("%.3f", Math.abs(c)) + ")}}";
-        //System.out.println(function);
+        return "y = " + "\\frac{" + String.format("%.3f", a) + "}{ 1 + e^{" + (b>0?"-":"") + String.format("%.3f", Math.abs(b)) + "(x " +(c>0?"-":"+")+ String.format("%.3f", Math.abs(c)) + ")}}";
     }
 }
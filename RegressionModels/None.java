@@ -7,4 +7,16 @@ public class None extends RegressionModel {
 
     public void fit() {
     }
+
+    protected double[] solve() {
+        return new double[0];
+    }
+
+    protected double value(double x, double[] coeff) {
+        return 0;
+    }
+
+    protected String describe(double[] coeff) {
+        return "";
+    }
 }
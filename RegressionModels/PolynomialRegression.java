@@ -1,31 +1,336 @@
 package RegressionModels;
 
-import org.apache.commons.math3.fitting.PolynomialCurveFitter;
-
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 
+//fits polynomials of any order up to MAX_ORDER, or picks the order itself when given AUTO
+//the coefficients are stored as {shift, scale, c0, c1, ..., cn} where the curve is c0*T0(t) + c1*T1(t) + ... + cn*Tn(t)
+//T are Chebyshev polynomials and t = (x - shift) / scale, which stays between -1 and 1 over the data
+//plain powers of x get huge and cancel each other out for high orders, Chebyshev polynomials dont, so high order fits stay accurate
 public class PolynomialRegression extends RegressionModel {
-    private PolynomialCurveFitter fitter;
+    public static final int AUTO = 0; //pass as the order to let the fit choose the order
+    public static final int MAX_ORDER = 20;
+    private static final int DIRECT_MAX_ORDER = 4; //up to this order the normal equations are accurate enough, so the faster single pass solve is used
+    private static final int AUTO_PATIENCE = 3; //auto mode stops once this many orders in a row havent improved the score
+    private static final int EVALUATE_BLOCK = 1024; //points per block in evaluate, small enough that the working arrays stay in cache
+    private static final String[] NAMES = {"Polynomial (auto)", "Linear", "Quadratic", "Cubic", "Quartic", "Quintic"};
+    private int order;
 
-    //dictionary to store model names based on which order function the model is being called for
     public PolynomialRegression(ArrayList<Point2D.Double> data, int order) { // can calulate any order polynomial
-        for (Point2D point : data) {
-            points.add(point.getX(), point.getY());
-        } //obtains point
-        fitter = PolynomialCurveFitter.create(order); //creates fitter object
-        HashMap<Integer, String> models = new HashMap<>() {{
-            put(1, "Linear");
-            put(2, "Quadratic");
-            put(3, "Cubic");
-            put(4, "Quartic");
-        }};
-        modelName = models.get(order);
-    }
-
-    public void fit() {
-        double[] coeff = fitter.fit(points.toList());
+        this(xValues(data), yValues(data), order); //obtains point
+    }
+
+    public PolynomialRegression(double[] xs, double[] ys, int order) {
+        if (order < 0 || order > MAX_ORDER) {
+            throw new IllegalArgumentException("Polynomial order must be between 1 and " + MAX_ORDER + ", or AUTO");
+        }
+        setData(xs, ys);
+        this.order = order;
+        modelName = nameFor(order);
+    }
+
+    //model names are what gets saved with a graph, so every order needs one that orderFor can read back
+    public static String nameFor(int order) {
+        if (order < NAMES.length) {
+            return NAMES[order];
+        }
+        return "Polynomial (order " + order + ")";
+    }
+
+    //the order for a model name, AUTO for the auto model, or -1 if the name isnt a polynomial
+    public static int orderFor(String modelName) {
+        for (int order = 0; order <= MAX_ORDER; order++) {
+            if (nameFor(order).equals(modelName)) {
+                return order;
+            }
+        }
+        return -1;
+    }
+
+    //the order of the fitted curve, which for the auto model is only known after fitting
+    public int getOrder() {
+        return coefficients != null ? coefficients.length - 3 : order;
+    }
+
+    protected int parameterCount() {
+        return coefficients.length - 2; //shift and scale come from the x values, they arent fitted
+    }
+
+    public void restore(double[] coefficients, String function) {
+        //fits saved before the Chebyshev form were plain powers of x (order + 1 numbers), those just get fitted again
+        if (coefficients.length < 3 || (order != AUTO && coefficients.length != order + 3)) {
+            return;
+        }
+        super.restore(coefficients, function);
+    }
+
+    protected double[] solve() {
+        if (moments != null || (order != AUTO && order <= DIRECT_MAX_ORDER)) {
+            return solveDirect();
+        }
+        return solveOrthogonal(order == AUTO ? MAX_ORDER : order, order == AUTO);
+    }
+
+    //least squares has a direct answer for polynomials, so instead of an iterative fitter this solves the normal equations
+    //one pass over the points adds up the sums of t^k and t^k*y (see RunningMoments), then a small (order+1) x (order+1) system is solved
+    private double[] solveDirect() {
+        RunningMoments sums = moments;
+        if (sums == null) {
+            sums = newMoments();
+            for (int i = 0; i < xData.length; i++) {
+                sums.add(xData[i], yData[i]);
+            }
+        }
+        double[] fit = sums.solve();
+        return pack(fit[0], fit[1], powersToChebyshev(Arrays.copyOfRange(fit, 2, fit.length)));
+    }
+
+    //the direct solve is exactly the moment sums solve, so online fits give the same curve as fitting all the points
+    protected RunningMoments newMoments() {
+        return order != AUTO && order <= DIRECT_MAX_ORDER ? new RunningMoments(order) : null;
+    }
+
+    //only orders that go online at all (see newMoments), higher orders and auto are refitted from all the points every time
+    public boolean isOnlineExact() {
+        return order >= 1 && order <= DIRECT_MAX_ORDER;
+    }
+
+    //fits with polynomials that are orthogonal over the data points (Forsythe's three term recurrence)
+    //each new order only adds one term and leaves the earlier ones alone, so auto mode tries order after order without starting over
+    //it costs one pass over the points per order, and never builds the badly conditioned normal equations
+    private double[] solveOrthogonal(int maxOrder, boolean auto) {
+        int n = xData.length;
+        if (n == 0) {
+            throw new IllegalArgumentException("No points to fit");
+        }
+        double shift = xData[0];
+        double reach = 0;
+        for (double x : xData) {
+            reach = Math.max(reach, Math.abs(x - shift));
+        }
+        double scale = reach > 0 ? reach : 1;
+        double[] t = new double[n];
+        for (int i = 0; i < n; i++) {
+            t[i] = (xData[i] - shift) / scale;
+        }
+
+        double[] residual = yData.clone();
+        double[] current = new double[n];  //the latest basis polynomial p_k at every point
+        double[] previous = new double[n]; //p_(k-1)
+        Arrays.fill(current, 1);
+        //the same two polynomials written in Chebyshev form, so the fit can be written down at the end
+        double[] currentForm = new double[maxOrder + 1];
+        double[] previousForm = new double[maxOrder + 1];
+        currentForm[0] = 1;
+        double[] fit = new double[maxOrder + 1];
+
+        double[] best = null;
+        double bestScore = Double.POSITIVE_INFINITY;
+        int sinceBest = 0;
+        double previousNorm = 0;
+        for (int k = 0; k <= maxOrder; k++) {
+            double norm = 0;
+            double projection = 0;
+            for (int i = 0; i < n; i++) {
+                norm += current[i] * current[i];
+                projection += current[i] * residual[i];
+            }
+            //p_k is (almost) zero at every point once k reaches the number of different x values, so higher orders cant be fitted
+            if (k > 0 && norm <= 1e-12 * previousNorm) {
+                if (!auto) {
+                    //padding the rest with zeros would show a lower order curve under the name of the one asked for
+                    throw new IllegalArgumentException("A polynomial of order " + maxOrder + " needs at least " + (maxOrder + 1)
+                            + " different x values, these points only have " + k);
+                }
+                break;
+            }
+            double c = projection / norm;
+            double rss = 0;
+            for (int i = 0; i < n; i++) {
+                residual[i] -= c * current[i];
+                rss += residual[i] * residual[i];
+            }
+            for (int j = 0; j <= k; j++) {
+                fit[j] += c * currentForm[j];
+            }
+
+            if (auto) {
+                //Bayesian information criterion: rewards a smaller error, charges ln(n) for every extra coefficient
+                double score = n * Math.log(Math.max(rss, Double.MIN_NORMAL) / n) + (k + 1) * Math.log(n);
+                if (score < bestScore) {
+                    bestScore = score;
+                    best = Arrays.copyOf(fit, k + 1);
+                    sinceBest = 0;
+                } else if (++sinceBest >= AUTO_PATIENCE) {
+                    break;
+                }
+                if (k + 2 >= n) {
+                    break; //more coefficients than points would just go through every point
+                }
+            }
+            if (k == maxOrder) {
+                break;
+            }
+
+            //p_(k+1) = (t - alpha) * p_k - beta * p_(k-1)
+            double weighted = 0;
+            for (int i = 0; i < n; i++) {
+                weighted += t[i] * current[i] * current[i];
+            }
+            double alpha = weighted / norm;
+            double beta = k == 0 ? 0 : norm / previousNorm;
+            for (int i = 0; i < n; i++) {
+                previous[i] = (t[i] - alpha) * current[i] - beta * previous[i];
+            }
+            double[] swap = previous;
+            previous = current;
+            current = swap;
+
+            double[] nextForm = timesT(currentForm);
+            for (int j = 0; j <= maxOrder; j++) {
+                nextForm[j] -= alpha * currentForm[j] + beta * previousForm[j];
+            }
+            previousForm = currentForm;
+            currentForm = nextForm;
+            previousNorm = norm;
+        }
+        return pack(shift, scale, auto ? best : fit);
+    }
+
+    private static double[] pack(double shift, double scale, double[] chebyshev) {
+        double[] coeff = new double[chebyshev.length + 2];
+        coeff[0] = shift;
+        coeff[1] = scale;
+        System.arraycopy(chebyshev, 0, coeff, 2, chebyshev.length);
+        return coeff;
+    }
+
+    //multiplies a polynomial in Chebyshev form by t, using t*T0 = T1 and t*Tj = (T(j-1) + T(j+1)) / 2
+    //the top term is dropped, callers make sure it is zero
+    private static double[] timesT(double[] chebyshev) {
+        double[] result = new double[chebyshev.length];
+        for (int j = 0; j < chebyshev.length; j++) {
+            if (j == 0) {
+                if (result.length > 1) {
+                    result[1] += chebyshev[0];
+                }
+            } else {
+                result[j - 1] += chebyshev[j] / 2;
+                if (j + 1 < result.length) {
+                    result[j + 1] += chebyshev[j] / 2;
+                }
+            }
+        }
+        return result;
+    }
+
+    //turns coefficients of 1, t, t^2... into Chebyshev form
+    private static double[] powersToChebyshev(double[] powers) {
+        double[] chebyshev = new double[powers.length];
+        double[] power = new double[powers.length]; //t^k in Chebyshev form
+        power[0] = 1;
+        for (int k = 0; k < powers.length; k++) {
+            for (int j = 0; j < powers.length; j++) {
+                chebyshev[j] += powers[k] * power[j];
+            }
+            power = timesT(power);
+        }
+        return chebyshev;
+    }
+
+    //turns Chebyshev form back into coefficients of 1, t, t^2..., using T(k+1) = 2t*Tk - T(k-1)
+    private static double[] chebyshevToPowers(double[] chebyshev) {
+        int size = chebyshev.length;
+        double[] powers = new double[size];
+        double[] previous = new double[size];
+        double[] current = new double[size];
+        current[0] = 1;
+        for (int k = 0; k < size; k++) {
+            for (int j = 0; j < size; j++) {
+                powers[j] += chebyshev[k] * current[j];
+            }
+            double[] next = new double[size];
+            for (int j = 0; j < size; j++) {
+                double tTimesCurrent = j > 0 ? current[j - 1] : 0;
+                next[j] = k == 0 ? tTimesCurrent : 2 * tTimesCurrent - previous[j]; //T1 = t
+            }
+            previous = current;
+            current = next;
+        }
+        return powers;
+    }
+
+    //the solve gives coefficients for powers of (x - shift) / scale, this expands them back into plain powers of x
+    private static double[] toPowersOfX(double[] scaled, double shift, double scale) {
+        double[] coeff = new double[scaled.length];
+        for (int k = 0; k < scaled.length; k++) {
+            double b = scaled[k] / Math.pow(scale, k);
+            //(x - shift)^k = sum over j of (k choose j) * x^j * (-shift)^(k - j)
+            double binomial = 1;
+            for (int j = 0; j <= k; j++) {
+                coeff[j] += b * binomial * Math.pow(-shift, k - j);
+                binomial = binomial * (k - j) / (j + 1);
+            }
+        }
+        return coeff;
+    }
+
+    //Clenshaw's method, the Chebyshev version of Horner's method
+    protected double value(double x, double[] coeff) {
+        double t = (x - coeff[0]) / coeff[1];
+        double b1 = 0;
+        double b2 = 0;
+        for (int k = coeff.length - 1; k >= 3; k--) {
+            double b0 = 2 * t * b1 - b2 + coeff[k];
+            b2 = b1;
+            b1 = b0;
+        }
+        return t * b1 - b2 + coeff[2];
+    }
+
+    //the same Clenshaw steps as value, but each step is done for a block of points before the next one
+    //so the inner loops are plain array arithmetic with no dependency between points, which the JIT vectorises
+    public void evaluate(double[] xs, double[] ysOut) {
+        if (coefficients == null) {
+            throw new IllegalStateException("The model has to be fitted before it can be evaluated");
+        }
+        double[] coeff = coefficients;
+        double shift = coeff[0];
+        double scale = coeff[1];
+        int block = Math.min(xs.length, EVALUATE_BLOCK);
+        double[] t = new double[block];
+        double[] b1 = new double[block];
+        double[] b2 = new double[block];
+        for (int from = 0; from < xs.length; from += block) {
+            int count = Math.min(block, xs.length - from);
+            for (int i = 0; i < count; i++) {
+                t[i] = (xs[from + i] - shift) / scale;
+                b1[i] = 0;
+                b2[i] = 0;
+            }
+            for (int k = coeff.length - 1; k >= 3; k--) {
+                double c = coeff[k];
+                for (int i = 0; i < count; i++) {
+                    double b0 = 2 * t[i] * b1[i] - b2[i] + c;
+                    b2[i] = b1[i];
+                    b1[i] = b0;
+                }
+            }
+            double c0 = coeff[2];
+            for (int i = 0; i < count; i++) {
+                ysOut[from + i] = t[i] * b1[i] - b2[i] + c0;
+            }
+        }
+    }
+
+    protected String describe(double[] coeff) {
+        //the equation is shown in plain powers of x, which is what people expect to read
+        double[] chebyshev = Arrays.copyOfRange(coeff, 2, coeff.length);
+        return describePowers(toPowersOfX(chebyshevToPowers(chebyshev), coeff[0], coeff[1]));
+    }
+
+    private static String describePowers(double[] coeff) {
         String func = "y = ";
         StringBuilder function_builder = new StringBuilder("");
 
@@ -33,7 +338,7 @@ public class PolynomialRegression extends RegressionModel {
             if (coeff[i] == 0) continue; // We dont want to include any 0x^n so we dont write 0 coefficients
 
             // Handle sign formatting
-            if (i == coeff.length - 1) {
+            if (function_builder.length() == 0) {
                 function_builder.append(String.format("%.3f", coeff[i])); //First term. Negative values keep their sighn
             } else {
                 //checks if it needs to add a + or - to the coefficient the  adds the coefficient without its normal sign
@@ -44,30 +349,13 @@ public class PolynomialRegression extends RegressionModel {
             if (i > 0) {
                 function_builder.append("x"); // Append x
                 if (i > 1)
-                    function_builder.append("^").append(i); // Append exponent if i > 1 we want to print x instead of x^1
+                    function_builder.append("^{").append(i).append("}"); // Append exponent if i > 1 we want to print x instead of x^1
             }
         }
-        if (function_builder.toString().equals("")) {
+        if (function_builder.length() == 0) {
             function_builder.append("0");
         }
-        function = func + function_builder.toString();
-        for (double x = x_range[0]; x <= x_range[1]; x += detail) {
-            double y = 0;
-            for (int i = coeff.length - 1; i >= 0; i--) {
-                y += coeff[i] * Math.pow(x, i); // Compute y value
-            }
-            if (y < y_limits[0] || y > y_limits[1]) {
-                continue;
-            }
-            xFit.add(x);
-            yFit.add(y);
-            if (y < y_range[0]) {
-                y_range[0] = y;
-            }
-            if (y > y_range[1]) {
-                y_range[1] = y;
-            }
-        }
+        return func + function_builder.toString();
     }
 
 }
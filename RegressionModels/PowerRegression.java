@@ -1,59 +1,61 @@
 package RegressionModels;
 
 import org.apache.commons.math3.analysis.ParametricUnivariateFunction;
-import org.apache.commons.math3.fitting.SimpleCurveFitter;
 
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
 
 public class PowerRegression extends RegressionModel {
-    private ParametricUnivariateFunction power;
+    private static final ParametricUnivariateFunction power = new ParametricUnivariateFunction() {
+        //implementing methods for the parametric univariate function
+        // this class is passed to a fitter which uses expressions for the y value and gradient to calculate coeffiecients
+        public double value(double x, double... params) {
+            double a = params[0];
+            double b = params[1];
+            return a * Math.pow(x, b);
+        }
 
-    public PowerRegression(ArrayList<Point2D.Double> data) {
-        for (Point2D point : data) {
-            points.add(point.getX(), point.getY());
+        public double[] gradient(double x, double... params) {
+            // returns the partial derivatives of the expression with respect to each paramter in an array
+            double b = params[1];
+            double a = params[0];
+            return new double[]{Math.pow(x, b), (a * Math.pow(x, b) * Math.log(x))};
         }
-        power = new ParametricUnivariateFunction() {
-            //implementing methods for the parametric univariate function
-            // this class is passed to a fitter which uses expressions for the y value and gradient to calculate coeffiecients
-            public double value(double x, double... params) {
-                double a = params[0];
-                double b = params[1];
-                return a * Math.pow(x, b);
-            }
-
-            public double[] gradient(double x, double... params) {
-                // returns the partial derivatives of the expression with respect to each paramter in an array
-                double b = params[1];
-                double a = params[0];
-                return new double[]{Math.pow(x, b), (a * Math.pow(x, b) * Math.log(x))};
-            }
-        };
+    };
+
+    public PowerRegression(ArrayList<Point2D.Double> data) {
+        this(xValues(data), yValues(data));
+    }
+
+    public PowerRegression(double[] xs, double[] ys) {
+        setData(xs, ys);
         modelName = "Power";
     }
 
-    public void fit() {
-        SimpleCurveFitter fitter = SimpleCurveFitter.create(power, new double[]{1, 1});
-        double[] coeff = fitter.fit(points.toList());
+    protected double[] solve() {
+        return solveLogLinear(power, true);
+    }
+
+    protected void clampRange() {
+        //x^b isnt defined for negative x in general
         if (x_range[0] < 0) {
             x_range[0] = 0;
         }
-        for (double x = x_range[0]; x <= x_range[1]; x += detail) {
-            double y = coeff[0] * Math.pow(x, coeff[1]);
-            if (y < y_limits[0] || y > y_limits[1]) {
-                continue;
-            }
-            xFit.add(x);
-            yFit.add(y);
-            if (y < y_range[0]) {
-                y_range[0] = y;
-            }
-            if (y > y_range[1]) {
-                y_range[1] = y;
-            }
-        }
+    }
+
+    ParametricUnivariateFunction parametricFunction() {
+        return power;
+    }
+
+    protected RunningMoments newMoments() {
+        return new RunningMoments(1, true, true, ySign());
+    }
+
+    protected double value(double x, double[] coeff) {
+        return coeff[0] * Math.pow(x, coeff[1]);
+    }
 
-        function = "y = " + String.format("%.3f", coeff[0]) + "x" + "^{" + String.format("%.3f", coeff[1]) + "}";
-        //System.out.println(function);
+    protected String describe(double[] coeff) {
+        return "y = " + String.format("%.3f", coeff[0]) + "x" + "^{" + String.format("%.3f", coeff[1]) + "}";
     }
 }
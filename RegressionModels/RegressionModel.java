@@ -1,32 +1,410 @@
 package RegressionModels;
 
-import org.apache.commons.math3.fitting.WeightedObservedPoints;
+import org.apache.commons.math3.analysis.ParametricUnivariateFunction;
+import org.apache.commons.math3.exception.ConvergenceException;
+import org.apache.commons.math3.exception.MathIllegalStateException;
+import org.apache.commons.math3.exception.TooManyEvaluationsException;
+import org.apache.commons.math3.exception.TooManyIterationsException;
+import org.apache.commons.math3.fitting.leastsquares.LeastSquaresBuilder;
+import org.apache.commons.math3.fitting.leastsquares.LeastSquaresOptimizer;
+import org.apache.commons.math3.fitting.leastsquares.LeastSquaresProblem;
+import org.apache.commons.math3.fitting.leastsquares.LevenbergMarquardtOptimizer;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.LUDecomposition;
+import org.apache.commons.math3.linear.SingularMatrixException;
+import org.apache.commons.math3.util.Pair;
 import org.scilab.forge.jlatexmath.TeXConstants;
 import org.scilab.forge.jlatexmath.TeXFormula;
 import org.scilab.forge.jlatexmath.TeXIcon;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Random;
 
 public abstract class RegressionModel {
-    protected double detail = 0.1; //sets how many fit points are created
+    protected double detail = 0.1; //width of one pixel along x, worked out from the plot size every time the curve is sampled
+    protected int plotWidth = 800; //size in pixels of the chart the curve is drawn on, the number of samples depends on this and not on the x range
+    protected int plotHeight = 600;
+    protected static final int MAX_SAMPLES = 10000; //hard cap on the points along one curve, whatever the plot size
+    private static final int GRID_PIXELS = 4; //the curve is first sampled every this many pixels, then split further where it bends
+    private int sampleBudget;
+    public static boolean LogSlowFits = false; //for debugging, prints the stats of every fit slower than SLOW_FIT_MILLIS
+    protected static final long SLOW_FIT_MILLIS = 500;
+    //limits for the nonlinear optimizer. a good starting guess converges in under 10 iterations, these only stop a bad fit from running forever
+    protected int maxIterations = 100;
+    protected int maxEvaluations = 1000;
+    protected long timeoutMillis = 2000;
+    //large data mode: nonlinear fits of more than largeDataThreshold points are first fitted to a sample of the points,
+    //then polished with a few passes over all of them, instead of every optimizer step going over every point
+    protected int largeDataThreshold = 200_000; //0 turns large data mode off
+    protected int sampleSize = 20_000;
+    protected int fullDataPasses = 3;
+    private double lastPassGain = 0;
+    private volatile boolean cancelled = false;
+    private long deadline; //System.nanoTime() after which the optimizer gives up
+    protected FitStats fitStats;
+    protected double[] warmStart; //coefficients of an earlier fit of the same model to nearly the same points, the optimizer starts from these when set
+    //the optimizer keeps nothing between fits, so one is shared by every model
+    private static final LevenbergMarquardtOptimizer optimizer = new LevenbergMarquardtOptimizer();
+    private String outcome; //filled in by refine while solving, for the stats
+    private int iterations, evaluations;
+    private double cost;
     protected String function;
     protected String modelName;
-    protected ArrayList<Double> xFit = new ArrayList<>();
-    protected ArrayList<Double> yFit = new ArrayList<>();
-    protected WeightedObservedPoints points = new WeightedObservedPoints();
+    protected FitCurve curve = new FitCurve(); //points along the best fit curve, reused every time the model is fitted again
+    protected double[] xData = new double[0]; //the points the model is fitted to, kept as two plain arrays
+    protected double[] yData = new double[0];
     protected double[] x_range;
     protected double[] y_range = new double[2];
     protected double[] y_limits = new double[2];
+    protected double[] coefficients; //fitted coefficients, null until the model has been fitted (or restored from a saved fit)
+    protected RunningMoments moments; //only in online mode: running sums of the points, which the model is fitted from instead of xData and yData
+    private String dataDigest; //fingerprint of the points the model was built from, used to check if a saved fit still matches. worked out the first time its asked for
 
     public String getFunction() {return function;}
     public String getModelName() {return modelName;}
-    public ArrayList<Double> getxFit() {return xFit;}
-    public ArrayList<Double> getyFit() {return yFit;}
+    public FitCurve getCurve() {return curve;}
     public double[] getY_range() {return y_range;}
     public double[] getY_limits() {return y_limits;}
+    public double[] getCoefficients() {return coefficients;}
+    public FitStats getFitStats() {return fitStats;}
+    /**
+     * How much the last full pass of a large data fit still improved it: the share by which it lowered the sum of squared residuals.
+     * This stands in for the approximation error of fitting on a sample. It is an estimate and not a bound, but the passes
+     * are Gauss-Newton steps which shrink quickly near the answer, so the gap left is usually smaller than this.
+     * @return the share, 0 for fits that weren't made in large data mode
+     */
+    public double getLastPassGain() {return lastPassGain;}
+    public String getDataDigest() {
+        if (dataDigest == null) {
+            dataDigest = digest(xData, yData);
+        }
+        return dataDigest;
+    }
+
+    //keeps the points the model will be fitted to
+    //the arrays are used as they are (not copied) so building a model costs nothing until it is actually fitted
+    protected void setData(double[] xs, double[] ys) {
+        xData = xs;
+        yData = ys;
+        dataDigest = null;
+    }
+
+    //models whose fit only needs running sums (see RunningMoments) say how to build them, the rest cant go online
+    protected RunningMoments newMoments() {
+        return null;
+    }
+
+    /**
+     * Switches the model to online mode, where points are added, removed or moved one at a time with addPoint,
+     * removePoint and updatePoint, and the next fit() solves from running sums in microseconds however many points there are.
+     * The sums start from the points the model was built with.
+     * @return false if this model can't be fitted from running sums
+     */
+    public boolean startOnline() {
+        RunningMoments sums = newMoments();
+        if (sums == null) {
+            return false;
+        }
+        for (int i = 0; i < xData.length; i++) {
+            sums.add(xData[i], yData[i]);
+        }
+        moments = sums; //the current fit (if any) was made from the same points, so it stays
+        return true;
+    }
+
+    public boolean isOnline() {return moments != null;}
+
+    //true when fitting from running sums gives the same curve as fitting all the points
+    //models fitted in log space (exponential, power) only give their log-linear fit online, which is close but not the same
+    public boolean isOnlineExact() {
+        return false;
+    }
+
+    public void addPoint(double x, double y) {
+        onlineMoments().add(x, y);
+        pointsChanged();
+    }
+
+    public void removePoint(double x, double y) {
+        onlineMoments().remove(x, y);
+        pointsChanged();
+    }
+
+    public void updatePoint(double oldX, double oldY, double newX, double newY) {
+        onlineMoments().update(oldX, oldY, newX, newY);
+        pointsChanged();
+    }
+
+    private RunningMoments onlineMoments() {
+        if (moments == null) {
+            throw new IllegalStateException("The model isnt in online mode, call startOnline first");
+        }
+        return moments;
+    }
+
+    //the old fit is dropped so the next fit() solves again
+    //xData and yData no longer match the fit, so the fingerprint is set to one no saved graph can match
+    private void pointsChanged() {
+        coefficients = null;
+        function = null;
+        dataDigest = "";
+    }
+
+    //the curve with its coefficients left open and their partial derivatives, for models fitted by refine (null for the others)
+    //models keep it in a static field, it holds nothing per graph so every model shares the one object
+    //JacobianChecker uses it to check the derivatives against numerical ones
+    ParametricUnivariateFunction parametricFunction() {
+        return null;
+    }
+
+    //polishes a starting guess with the Levenberg-Marquardt optimizer, within the model's budget
+    //if the guess comes from a straight line fit (keepStart) it is already close, and if the optimizer cant settle or runs out of budget the guess is kept
+    //otherwise running out means the model cant be fitted to these points
+    protected double[] refine(ParametricUnivariateFunction function, double[] start, boolean keepStart) {
+        if (largeDataThreshold > 0 && xData.length > largeDataThreshold && sampleSize > 0 && sampleSize < xData.length) {
+            return refineLarge(function, start, keepStart);
+        }
+        return optimize(function, start, keepStart);
+    }
+
+    private double[] optimize(ParametricUnivariateFunction function, double[] start, boolean keepStart) {
+        LeastSquaresProblem problem = new LeastSquaresBuilder()
+                .start(start)
+                .target(yData)
+                .model(point -> {
+                    if (stopRequested() || System.nanoTime() > deadline) {
+                        throw new FitCancelledException(modelName);
+                    }
+                    evaluations++; //counted here too so fits that fail still report how far they got
+                    double[] params = point.toArray();
+                    double[] values = new double[xData.length];
+                    double[][] jacobian = new double[xData.length][];
+                    for (int i = 0; i < xData.length; i++) {
+                        values[i] = function.value(xData[i], params);
+                        jacobian[i] = function.gradient(xData[i], params);
+                    }
+                    return new Pair<>(new ArrayRealVector(values, false), new Array2DRowRealMatrix(jacobian, false));
+                })
+                .maxIterations(maxIterations)
+                .maxEvaluations(maxEvaluations)
+                //never stops the fit itself (the optimizer's own tests do that), it only notes how far the optimizer got
+                //so a fit that runs out of budget or time still reports its iterations
+                .checker((iteration, previous, current) -> {
+                    iterations = iteration;
+                    return false;
+                })
+                .build();
+        try {
+            LeastSquaresOptimizer.Optimum optimum = optimizer.optimize(problem);
+            outcome = "converged";
+            iterations = optimum.getIterations();
+            cost = optimum.getCost();
+            return optimum.getPoint().toArray();
+        } catch (FitCancelledException e) {
+            if (stopRequested()) {
+                outcome = "cancelled";
+                throw e;
+            }
+            outcome = "timed out";
+            return fallBack(start, keepStart, new ConvergenceException());
+        } catch (TooManyIterationsException | TooManyEvaluationsException e) {
+            outcome = "hit iteration budget";
+            return fallBack(start, keepStart, e);
+        } catch (MathIllegalStateException e) {
+            outcome = "did not converge";
+            return fallBack(start, keepStart, e);
+        }
+    }
+
+    //fits a sample of the points with the optimizer, then takes a few Gauss-Newton steps over all of them
+    //the sample takes one point at random from each of sampleSize equal blocks of the points, so every part of the data is represented
+    //(for time ordered data like sensor logs thats every stretch of time). the random generator is seeded so the same points always give the same fit
+    private double[] refineLarge(ParametricUnivariateFunction function, double[] start, boolean keepStart) {
+        double[] allX = xData;
+        double[] allY = yData;
+        double[] sampleX = new double[sampleSize];
+        double[] sampleY = new double[sampleSize];
+        Random random = new Random(allX.length);
+        for (int block = 0; block < sampleSize; block++) {
+            int from = (int) ((long) block * allX.length / sampleSize);
+            int to = (int) ((long) (block + 1) * allX.length / sampleSize);
+            int pick = from + random.nextInt(to - from);
+            sampleX[block] = allX[pick];
+            sampleY[block] = allY[pick];
+        }
+        double[] fitted;
+        xData = sampleX;
+        yData = sampleY;
+        try {
+            fitted = optimize(function, start, keepStart);
+        } finally {
+            xData = allX;
+            yData = allY;
+        }
+
+        //each pass works out the residuals and the Jacobian over all the points, and from them the Gauss-Newton step
+        //a step that makes things worse is halved and tried again on the next pass
+        double[] best = fitted;
+        double bestRss = Double.NaN;
+        double[] step = null;
+        double lastGain = 0;
+        String stopped = "";
+        for (int pass = 0; pass < fullDataPasses; pass++) {
+            if (System.nanoTime() > deadline) {
+                stopped = ", stopped at the time limit";
+                break;
+            }
+            double[] trial = best.clone();
+            if (step != null) {
+                for (int k = 0; k < trial.length; k++) {
+                    trial[k] += step[k];
+                }
+            }
+            double[][] normal = new double[trial.length][trial.length];
+            double[] right = new double[trial.length];
+            double rss = fullPass(function, trial, normal, right);
+            if (step == null && !Double.isFinite(rss)) {
+                break; //the sample's curve overflows somewhere in the full data, so it cant be polished
+            }
+            if (step == null || rss < bestRss) {
+                lastGain = step == null ? 0 : (bestRss - rss) / bestRss;
+                best = trial;
+                bestRss = rss;
+                try {
+                    step = new LUDecomposition(new Array2DRowRealMatrix(normal, false)).getSolver()
+                            .solve(new ArrayRealVector(right, false)).toArray();
+                } catch (SingularMatrixException e) {
+                    break; //the points dont pin the coefficients down any further
+                }
+            } else {
+                for (int k = 0; k < step.length; k++) {
+                    step[k] /= 2;
+                }
+            }
+        }
+        lastPassGain = lastGain;
+        cost = Math.sqrt(bestRss);
+        outcome += " on " + sampleSize + " of " + allX.length + " points, then " + fullDataPasses + " full passes" + stopped
+                + " (last pass improved it by " + String.format("%.2g", lastPassGain * 100) + "%)";
+        return best;
+    }
+
+    //one pass over all the points: returns the sum of squared residuals and fills in J^T J and J^T r for the next step
+    private double fullPass(ParametricUnivariateFunction function, double[] params, double[][] normal, double[] right) {
+        if (stopRequested()) {
+            throw new FitCancelledException(modelName);
+        }
+        evaluations++;
+        double rss = 0;
+        for (int i = 0; i < xData.length; i++) {
+            double residual = yData[i] - function.value(xData[i], params);
+            double[] gradient = function.gradient(xData[i], params);
+            rss += residual * residual;
+            for (int row = 0; row < params.length; row++) {
+                right[row] += gradient[row] * residual;
+                for (int col = 0; col < params.length; col++) {
+                    normal[row][col] += gradient[row] * gradient[col];
+                }
+            }
+        }
+        return rss;
+    }
+
+    //fits from the last fit's coefficients (see warmStartFrom), for models that can also work out a seed from the data
+    //after a bigger edit the last fit can be far off and fail, or settle somewhere much worse than the seed would,
+    //so the warm fit is only kept if it fits the points better than the seed does. null means start from the seed instead
+    protected double[] refineWarm(ParametricUnivariateFunction function, double[] seed) {
+        try {
+            double[] warm = refine(function, warmStart, false);
+            if (seed == null) {
+                return warm;
+            }
+            double warmCost = squaredResiduals(function, warm);
+            double seedCost = squaredResiduals(function, seed);
+            if (warmCost <= seedCost || Double.isNaN(seedCost)) {
+                return warm;
+            }
+        } catch (MathIllegalStateException e) {
+            //the edit moved the curve too far from the last fit, so start again from the data
+        }
+        return null;
+    }
+
+    private double squaredResiduals(ParametricUnivariateFunction function, double[] params) {
+        double rss = 0;
+        for (int i = 0; i < xData.length; i++) {
+            double residual = yData[i] - function.value(xData[i], params);
+            rss += residual * residual;
+        }
+        return rss;
+    }
+
+    private double[] fallBack(double[] start, boolean keepStart, MathIllegalStateException failure) {
+        if (keepStart) {
+            outcome += ", kept starting guess";
+            return start;
+        }
+        throw failure;
+    }
+
+    //for y = Ae^(Bx) and y = Ax^B (logX), where taking logs turns the curve into the straight line ln|y| = ln|A| + B*x (or B*ln(x)),
+    //which least squares solves directly. that answer weighs the points differently than fitting y itself,
+    //so the nonlinear fitter polishes it unless it is already exact
+    protected double[] solveLogLinear(ParametricUnivariateFunction function, boolean logX) {
+        if (moments != null) {
+            //online there are no points to polish against, so the log-linear fit is the answer
+            double[] line = moments.line();
+            return new double[]{moments.getSign() * Math.exp(line[0]), line[1]};
+        }
+        int sign = ySign();
+        LineFit line = new LineFit();
+        for (int i = 0; i < xData.length; i++) {
+            //x <= 0 (for logX) or y on the other side of the x axis give NaN or -infinity and are skipped
+            line.add(logX ? Math.log(xData[i]) : xData[i], Math.log(sign * yData[i]));
+        }
+        double[] start = line.isDefined() ? new double[]{sign * Math.exp(line.intercept()), line.slope()} : null;
+        if (warmStart != null) {
+            double[] warm = refineWarm(function, start); //the last fit is usually closer than the log-linear one, unless the points changed a lot
+            if (warm != null) {
+                return warm;
+            }
+        }
+        if (start == null) {
+            return refine(function, new double[]{1, 1}, false); //not enough usable points for a line, so start from the old fixed guess
+        }
+        return line.isExact() ? start : refine(function, start, true);
+    }
+
+    //which sign most of the y values have, so models like y = Ae^(Bx) can take logs of curves that sit below the x axis
+    protected int ySign() {
+        int balance = 0;
+        for (double y : yData) {
+            balance += y < 0 ? -1 : (y > 0 ? 1 : 0);
+        }
+        return balance < 0 ? -1 : 1;
+    }
+
+    //splits a list of points into x values and y values for the constructors that still take a list
+    protected static double[] xValues(ArrayList<? extends Point2D> data) {
+        double[] xs = new double[data.size()];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = data.get(i).getX();
+        }
+        return xs;
+    }
+
+    protected static double[] yValues(ArrayList<? extends Point2D> data) {
+        double[] ys = new double[data.size()];
+        for (int i = 0; i < ys.length; i++) {
+            ys[i] = data.get(i).getY();
+        }
+        return ys;
+    }
 
     public void setY_limits(double[] y_limits) {
         this.y_limits = y_limits;
@@ -34,12 +412,269 @@ public abstract class RegressionModel {
     public void setX_range(double min, double max) {
         x_range = new double[]{min, max};
     }
-    //Regression model is a base class that forces its children to have a fit() method and provides a base function to render equations
+    /**
+     * Sets how much work the nonlinear optimizer may do before it gives up.
+     * When it gives up, models that have a reasonable starting guess keep that guess, the others fail to fit.
+     * @param maxIterations most optimizer iterations
+     * @param maxEvaluations most evaluations of the curve over all the points
+     * @param timeoutMillis most time spent solving, in milliseconds
+     */
+    public void setBudget(int maxIterations, int maxEvaluations, long timeoutMillis) {
+        this.maxIterations = maxIterations;
+        this.maxEvaluations = maxEvaluations;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Sets when and how nonlinear fits switch to large data mode.
+     * @param threshold fits of more points than this are done on a sample first, 0 turns it off
+     * @param sampleSize how many points the sample has
+     * @param fullDataPasses how many passes over all the points polish the sample's fit
+     */
+    public void setLargeDataMode(int threshold, int sampleSize, int fullDataPasses) {
+        if (threshold < 0 || sampleSize <= 0 || fullDataPasses < 0) {
+            throw new IllegalArgumentException("Large data mode needs a threshold and number of passes of at least 0, and a sample of at least 1 point");
+        }
+        this.largeDataThreshold = threshold;
+        this.sampleSize = sampleSize;
+        this.fullDataPasses = fullDataPasses;
+    }
+
+    //asks a running fit to stop. it stops at its next evaluation and fit() throws FitCancelledException
+    //safe to call from any thread, and a model that was cancelled before fitting wont fit at all
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {return cancelled;}
+
+    //interrupting the thread a fit runs on stops it the same way, but only that fit, so the model can still be refitted later
+    private boolean stopRequested() {
+        return cancelled || Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Starts the next fit from another model's coefficients, for refitting after a small edit to the points.
+     * The optimizer then only has to move a little and usually converges in one or two iterations.
+     * Nothing happens if the other model is a different kind of model or wasn't fitted.
+     * @param previous the model fitted before the edit
+     */
+    public void warmStartFrom(RegressionModel previous) {
+        if (previous != null && previous != this && previous.getClass() == getClass()
+                && previous.modelName.equals(modelName) && previous.coefficients != null) {
+            warmStart = previous.coefficients.clone();
+        }
+    }
+
+    public void setPlotSize(int width, int height) {
+        plotWidth = Math.max(width, 1);
+        plotHeight = Math.max(height, 1);
+    }
+    //Regression model is a base class for all the models and provides a base function to render equations
     //The fit method generates a math equation for the best fit curve and provides points to plot this best fit curve
+    //its children only have to say how to calculate their coefficients (solve), how to get a y value from them (value) and how to write the equation (describe)
     //all regression models will have a model name and a function string that stores Latex code to render an equation in RenderEquation
     // also stores points to draw on the graph and points to calculate a curve for
     //finally it stores an x_range to ensure that the fit points don't exceed the boundaries set for the graph plot
-    public abstract void fit();
+    public void fit() {
+        //fitting the same points with the same model for the same plot gives the same curve, so it can come from the cache
+        String key = FitCache.keyFor(this);
+        if (key != null && FitCache.shared().load(key, this)) {
+            return;
+        }
+        solveFit();
+        sample();
+        if (key != null) {
+            FitCache.shared().store(key, this);
+        }
+    }
+
+    /**
+     * Calculates the coefficients and equation without sampling the curve, for when only the fit itself is needed.
+     * The (slow) solve is skipped if the coefficients are already known, eg when they were restored from a saved graph.
+     */
+    public void solveFit() {
+        if (coefficients == null) {
+            if (stopRequested()) {
+                throw new FitCancelledException(modelName);
+            }
+            long started = System.nanoTime();
+            deadline = started + timeoutMillis * 1_000_000;
+            outcome = "solved directly";
+            lastPassGain = 0;
+            iterations = 0;
+            evaluations = 0;
+            cost = Double.NaN;
+            try {
+                coefficients = solve();
+            } finally {
+                fitStats = new FitStats(modelName, outcome, iterations, evaluations, cost, lastPassGain, System.nanoTime() - started);
+                if (LogSlowFits && fitStats.elapsedNanos() > SLOW_FIT_MILLIS * 1_000_000) {
+                    System.out.println("Slow fit: " + fitStats);
+                }
+            }
+            function = describe(coefficients);
+        } else if (function == null) {
+            function = describe(coefficients);
+        }
+    }
+
+    //how many numbers the fit chooses, used to charge models with more freedom when comparing them
+    protected int parameterCount() {
+        return coefficients.length;
+    }
+
+    //sum of the squared distances between the points and the fitted curve
+    public double residualSumOfSquares() {
+        double[] fitted = new double[xData.length];
+        evaluate(xData, fitted);
+        double rss = 0;
+        for (int i = 0; i < fitted.length; i++) {
+            double residual = yData[i] - fitted[i];
+            rss += residual * residual;
+        }
+        return rss;
+    }
+
+    //calculates the coefficients of the best fit curve from the points
+    protected abstract double[] solve();
+
+    //calculates the y value of the best fit curve at x
+    protected abstract double value(double x, double[] coeff);
+
+    //writes the equation of the best fit curve as Latex
+    protected abstract String describe(double[] coeff);
+
+    /**
+     * Works out the fitted curve's y value at many x values at once.
+     * Models override this with a loop the JIT can turn into SIMD instructions where their formula allows it.
+     * @param xs the x values
+     * @param ysOut where the y values go, must be at least as long as xs
+     */
+    public void evaluate(double[] xs, double[] ysOut) {
+        if (coefficients == null) {
+            throw new IllegalStateException("The model has to be fitted before it can be evaluated");
+        }
+        double[] coeff = coefficients;
+        for (int i = 0; i < xs.length; i++) {
+            ysOut[i] = value(xs[i], coeff);
+        }
+    }
+
+    //lets models that arent defined everywhere (eg logs) move the start of the x range before the curve is sampled
+    protected void clampRange() {}
+
+    //generates the points along the best fit curve that get plotted
+    //the curve is sampled on a grid a few pixels apart, and each gap is split in half again wherever a straight line
+    //between its ends would be more than half a pixel off the curve. so the number of points depends on the size of the plot
+    //and how much the curve bends, not on how big the x values are, and it never goes over MAX_SAMPLES
+    protected void sample() {
+        curve.clear();
+        //models get refitted (online edits, new plot areas), so the spread of the last curve mustnt carry over
+        //it starts at 0 like a new model's, so the range always takes in the x axis
+        y_range[0] = 0;
+        y_range[1] = 0;
+        detail = (x_range[1] - x_range[0]) / plotWidth;
+        clampRange();
+        double start = x_range[0];
+        double end = x_range[1];
+        if (!(end > start)) {
+            keep(start, value(start, coefficients));
+            return;
+        }
+
+        int segments = Math.max(16, Math.min(plotWidth / GRID_PIXELS, MAX_SAMPLES / 4));
+        double[] gridX = new double[segments + 1];
+        double[] gridY = new double[segments + 1];
+        double low = Double.POSITIVE_INFINITY;
+        double high = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i <= segments; i++) {
+            gridX[i] = i == segments ? end : start + (end - start) * i / segments;
+        }
+        evaluate(gridX, gridY);
+        for (int i = 0; i <= segments; i++) {
+            if (isShown(gridY[i])) {
+                low = Math.min(low, gridY[i]);
+                high = Math.max(high, gridY[i]);
+            }
+        }
+        //the y axis will cover at least the curve's own spread, so half a pixel of that is as fine as anyone can see
+        double tolerance = high > low ? (high - low) / plotHeight / 2 : Double.POSITIVE_INFINITY;
+        double smallest = detail / 4; //gaps are never split below a quarter of a pixel
+        sampleBudget = MAX_SAMPLES - gridX.length;
+
+        keep(gridX[0], gridY[0]);
+        for (int i = 0; i < segments; i++) {
+            refine(gridX[i], gridY[i], gridX[i + 1], gridY[i + 1], tolerance, smallest);
+            keep(gridX[i + 1], gridY[i + 1]);
+        }
+    }
+
+    //adds the points between a and b (not a or b themselves) that are needed to draw the curve smoothly
+    private void refine(double a, double ya, double b, double yb, double tolerance, double smallest) {
+        if (sampleBudget <= 0 || b - a <= smallest) {
+            return;
+        }
+        double middle = (a + b) / 2;
+        double ym = value(middle, coefficients);
+        sampleBudget--;
+        boolean straight = isShown(ya) && isShown(yb) && isShown(ym) && Math.abs(ym - (ya + yb) / 2) <= tolerance;
+        //a gap where the curve leaves the plot (or isnt defined) is split too, so the curve runs right up to the edge
+        boolean hidden = !isShown(ya) && !isShown(yb) && !isShown(ym);
+        if (straight || hidden) {
+            return;
+        }
+        refine(a, ya, middle, ym, tolerance, smallest);
+        keep(middle, ym);
+        refine(middle, ym, b, yb, tolerance, smallest);
+    }
+
+    private boolean isShown(double y) {
+        return y >= y_limits[0] && y <= y_limits[1]; //also false for NaN
+    }
+
+    private void keep(double x, double y) {
+        if (!isShown(y)) {
+            return;
+        }
+        curve.add(x, y);
+        if (y < y_range[0]) {
+            y_range[0] = y;
+        }
+        if (y > y_range[1]) {
+            y_range[1] = y;
+        }
+    }
+
+    /**
+     * Reuses the result of an earlier fit so the next fit() skips solving.
+     * Only use this when the points haven't changed since those coefficients were calculated.
+     * @param coefficients the saved coefficients
+     * @param function the saved equation, or null to write it again from the coefficients
+     */
+    public void restore(double[] coefficients, String function) {
+        this.coefficients = coefficients.clone();
+        this.function = function;
+    }
+
+    //makes a fingerprint of the points so a saved fit can be matched to the points it was made from
+    //it mixes the exact bits of every number, so any change to any point gives a different fingerprint
+    protected static String digest(double[] xs, double[] ys) {
+        long hash = 0xcbf29ce484222325L; //FNV-1a 64 bit offset basis
+        for (int i = 0; i < xs.length; i++) {
+            hash = mix(hash, Double.doubleToLongBits(xs[i]));
+            hash = mix(hash, Double.doubleToLongBits(ys[i]));
+        }
+        return xs.length + "-" + Long.toHexString(hash);
+    }
+
+    private static long mix(long hash, long bits) {
+        for (int i = 0; i < 8; i++) {
+            hash ^= (bits >>> (i * 8)) & 0xff;
+            hash *= 0x100000001b3L; //FNV-1a 64 bit prime
+        }
+        return hash;
+    }
 
     public JPanel RenderEquation() {
         JLabel label = new JLabel();
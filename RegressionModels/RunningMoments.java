@@ -0,0 +1,123 @@
+package RegressionModels;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.CholeskyDecomposition;
+import org.apache.commons.math3.linear.NonPositiveDefiniteMatrixException;
+import org.apache.commons.math3.linear.QRDecomposition;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.RealVector;
+
+//running sums that are all a least squares polynomial fit needs: the sums of t^k and of t^k * v
+//points can be added, removed or moved one at a time in O(order) and the fit solved again from the sums in O(order^3),
+//so keeping a fit up to date doesnt depend on how many points there are
+//u and v can be the logs of x and y, which covers models that become a polynomial after taking logs (eg y = Ae^(Bx))
+//t is u shifted by the first u ever added, so big values (eg years) dont swamp the sums with huge powers
+//removing points subtracts from the sums, so after very many edits rounding can build up. building the sums again fixes that
+public class RunningMoments {
+    private final int order;
+    private final boolean logX;
+    private final boolean logY;
+    private final int sign; //with logY, v is ln(sign * y) so curves below the x axis can be fitted too
+    private double shift = Double.NaN;
+    private final double[] powerSums; //sum of t^k for k = 0..2*order
+    private final double[] momentSums; //sum of t^k * v for k = 0..order
+
+    public RunningMoments(int order) {
+        this(order, false, false, 1);
+    }
+
+    public RunningMoments(int order, boolean logX, boolean logY, int sign) {
+        this.order = order;
+        this.logX = logX;
+        this.logY = logY;
+        this.sign = sign;
+        powerSums = new double[2 * order + 1];
+        momentSums = new double[order + 1];
+    }
+
+    //points that cant be used (eg the log of a negative number) are skipped, the same way when they are removed again
+    public void add(double x, double y) {
+        accumulate(x, y, 1);
+    }
+
+    public void remove(double x, double y) {
+        accumulate(x, y, -1);
+    }
+
+    public void update(double oldX, double oldY, double newX, double newY) {
+        accumulate(oldX, oldY, -1);
+        accumulate(newX, newY, 1);
+    }
+
+    private void accumulate(double x, double y, double weight) {
+        double u = logX ? Math.log(x) : x;
+        double v = logY ? Math.log(sign * y) : y;
+        if (!Double.isFinite(u) || !Double.isFinite(v)) {
+            return;
+        }
+        if (Double.isNaN(shift)) {
+            shift = u;
+        }
+        double t = u - shift;
+        double power = weight;
+        for (int k = 0; k < powerSums.length; k++) {
+            powerSums[k] += power;
+            if (k <= order) {
+                momentSums[k] += power * v;
+            }
+            power *= t;
+        }
+    }
+
+    //the number of points in the sums
+    public long getCount() {
+        return Math.round(powerSums[0]);
+    }
+
+    /**
+     * Solves the least squares fit from the sums.
+     * @return {shift, scale, b0, b1, ..., b(order)} where the fit is v = b0 + b1*s + ... + b(order)*s^order with s = (u - shift) / scale
+     */
+    public double[] solve() {
+        int terms = order + 1;
+        if (getCount() < terms) {
+            throw new IllegalArgumentException("Need at least " + terms + " points to fit");
+        }
+        //dividing by scale^k is the same as having used t/scale, which keeps every entry of the system near 1
+        double spread = order > 0 ? Math.sqrt(Math.max(powerSums[2] / powerSums[0], 0)) : 0; //root mean square of t
+        double scale = spread > 0 ? spread : 1;
+        RealMatrix normal = new Array2DRowRealMatrix(terms, terms);
+        RealVector right = new ArrayRealVector(terms);
+        for (int row = 0; row < terms; row++) {
+            for (int col = 0; col < terms; col++) {
+                normal.setEntry(row, col, powerSums[row + col] / Math.pow(scale, row + col));
+            }
+            right.setEntry(row, momentSums[row] / Math.pow(scale, row));
+        }
+        double[] scaled;
+        try {
+            scaled = new CholeskyDecomposition(normal).getSolver().solve(right).toArray();
+        } catch (NonPositiveDefiniteMatrixException e) {
+            //rounding can make a nearly singular system look not positive definite, QR copes with that better
+            scaled = new QRDecomposition(normal).getSolver().solve(right).toArray();
+        }
+        double[] result = new double[terms + 2];
+        result[0] = shift;
+        result[1] = scale;
+        System.arraycopy(scaled, 0, result, 2, terms);
+        return result;
+    }
+
+    //for order 1: the fitted line v = intercept + slope * u as {intercept, slope}
+    public double[] line() {
+        double[] fit = solve();
+        double slope = fit[3] / fit[1];
+        return new double[]{fit[2] - slope * fit[0], slope};
+    }
+
+    public int getOrder() {return order;}
+    public boolean isLogX() {return logX;}
+    public boolean isLogY() {return logY;}
+    public int getSign() {return sign;}
+}